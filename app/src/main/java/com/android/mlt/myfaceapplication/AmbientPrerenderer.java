@@ -0,0 +1,241 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+
+/**
+ * 微光模式下一分钟画面的预渲染。
+ * <p>
+ * 每次后台线程在微光模式下发布快照后（设备仍处于唤醒状态），用下一分钟的快照把整帧
+ * 画到两张交替使用的位图之一，完成后作为前台帧发布。下一次 onTimeTick 时主线程只核对
+ * 分钟、日期、电量和未读通知标签是否与当前快照一致，一致则直接贴图，否则由调用者同步绘制。
+ * 标签发布后不再修改，内容变化时换成新对象，按引用比较即可。
+ * <p>
+ * 渲染使用单独的 {@link AmbientRenderer}，只在后台线程访问；位图读写以帧对象为锁。
+ */
+final class AmbientPrerenderer {
+
+    private static final int MSG_GEOMETRY = 0;
+    private static final int MSG_PROPERTIES = 1;
+    private static final int MSG_RECYCLE = 2;
+
+    /**
+     * 一张预渲染的位图及其输入
+     */
+    private static final class Frame {
+        Bitmap mBitmap;
+        long mMinute = -1;
+        TextLabel mDate;
+        TextLabel mBattery;
+        TextLabel mNotice;
+        int mGeneration;
+
+        boolean matches(long minute, FrameModel model, int generation) {
+            return mBitmap != null && mMinute == minute && mGeneration == generation
+                    && mDate == model.getDate() && mBattery == model.getBattery()
+                    && mNotice == model.getNotice();
+        }
+    }
+
+    private final Handler mHandler;
+
+    // 最近发布的帧，没有可用帧时为 null
+    private volatile Frame mFront;
+
+    // 以下只在主线程访问
+    private final Paint mBlitPaint = new Paint();
+    // 几何或屏幕属性每次变化加一，之前渲染的帧作废
+    private int mGeneration;
+    // 屏幕上是否为预渲染帧及其输入
+    private boolean mShown;
+    private long mShownMinute;
+    private TextLabel mShownDate;
+    private TextLabel mShownBattery;
+    private TextLabel mShownNotice;
+
+    // 以下只在后台线程访问
+    private final AmbientRenderer mRenderer;
+    private final CanvasRenderCommands mCommands = new CanvasRenderCommands();
+    private final Frame[] mFrames = {new Frame(), new Frame()};
+    private int mBack;
+    private int mWidth;
+    private int mHeight;
+    private int mRenderGeneration;
+    // 最近一次预渲染的快照，几何或属性变化后重新渲染
+    private FrameModel mLastModel;
+
+    /**
+     * @param renderer 专用的微光渲染器，之后只在后台线程使用
+     * @param looper   后台线程
+     */
+    AmbientPrerenderer(AmbientRenderer renderer, Looper looper) {
+        mRenderer = renderer;
+        mHandler = new Handler(looper, new Handler.Callback() {
+            @Override
+            public boolean handleMessage(Message msg) {
+                switch (msg.what) {
+                    case MSG_GEOMETRY:
+                        FaceGeometry geometry = (FaceGeometry) msg.obj;
+                        mRenderer.setGeometry(geometry);
+                        mWidth = geometry.getWidth();
+                        mHeight = geometry.getHeight();
+                        // 旧快照按旧尺寸排版，等后台线程按新几何更新后再渲染
+                        mLastModel = null;
+                        applyGeneration(msg.arg1);
+                        break;
+                    case MSG_PROPERTIES:
+                        mRenderer.setProperties((msg.arg2 & 1) != 0, (msg.arg2 & 2) != 0);
+                        applyGeneration(msg.arg1);
+                        break;
+                    case MSG_RECYCLE:
+                        mFront = null;
+                        mLastModel = null;
+                        releaseBitmaps();
+                        mRenderer.recycle();
+                        break;
+                    default:
+                        return false;
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * 表盘尺寸或屏幕形状变化，在主线程调用
+     */
+    void setGeometry(FaceGeometry geometry) {
+        mShown = false;
+        mHandler.sendMessage(mHandler.obtainMessage(MSG_GEOMETRY, ++mGeneration, 0, geometry));
+    }
+
+    /**
+     * 屏幕属性变化，在主线程调用
+     */
+    void setProperties(boolean lowBit, boolean burnInProtection) {
+        mShown = false;
+        int flags = (lowBit ? 1 : 0) | (burnInProtection ? 2 : 0);
+        mHandler.sendMessage(mHandler.obtainMessage(MSG_PROPERTIES, ++mGeneration, flags));
+    }
+
+    /**
+     * 释放位图，在主线程调用，之后不再贴图
+     */
+    void recycle() {
+        mShown = false;
+        mGeneration++;
+        mHandler.sendEmptyMessage(MSG_RECYCLE);
+    }
+
+    /**
+     * 预渲染的帧是否可以直接用于当前分钟，在主线程调用
+     *
+     * @param minute 当前墙钟分钟（自 1970 年起）
+     * @param model  当前快照，可能仍是上一分钟的
+     */
+    boolean isReady(long minute, FrameModel model) {
+        Frame frame = mFront;
+        if (frame == null) {
+            return false;
+        }
+        synchronized (frame) {
+            return frame.matches(minute, model, mGeneration);
+        }
+    }
+
+    /**
+     * 贴上预渲染的帧，在主线程调用
+     *
+     * @return 帧不可用时为 false，调用者需同步绘制
+     */
+    boolean draw(RenderCommands render, long minute, FrameModel model) {
+        mShown = false;
+        Frame frame = mFront;
+        if (frame == null) {
+            return false;
+        }
+        synchronized (frame) {
+            if (!frame.matches(minute, model, mGeneration) || frame.mBitmap.isRecycled()) {
+                return false;
+            }
+            render.drawBitmap(frame.mBitmap, 0, 0, mBlitPaint);
+        }
+        mShown = true;
+        mShownMinute = minute;
+        mShownDate = model.getDate();
+        mShownBattery = model.getBattery();
+        mShownNotice = model.getNotice();
+        return true;
+    }
+
+    /**
+     * 屏幕上的预渲染帧与快照内容相同，快照发布时无需重绘。在主线程调用
+     */
+    boolean isShown(FrameModel model) {
+        return mShown && mShownMinute == model.getMinute()
+                && mShownDate == model.getDate() && mShownBattery == model.getBattery()
+                && mShownNotice == model.getNotice();
+    }
+
+    /**
+     * 渲染下一分钟的画面，完成后发布。在后台线程调用
+     *
+     * @param model 下一分钟的快照，文字已排版
+     */
+    void prerender(FrameModel model) {
+        mLastModel = model;
+        if (mWidth <= 0 || mHeight <= 0) {
+            return;
+        }
+        Frame frame = mFrames[mBack];
+        synchronized (frame) {
+            if (frame.mBitmap == null) {
+                frame.mBitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+            }
+            mCommands.setTarget(RenderTrace.TARGET_SCREEN, new Canvas(frame.mBitmap));
+            mRenderer.draw(mCommands, model);
+            frame.mMinute = model.getMinute();
+            frame.mDate = model.getDate();
+            frame.mBattery = model.getBattery();
+            frame.mNotice = model.getNotice();
+            frame.mGeneration = mRenderGeneration;
+        }
+        mFront = frame;
+        mBack = 1 - mBack;
+    }
+
+    /**
+     * 几何或属性变化后丢弃旧帧，属性变化时按新设置重新渲染最近的快照
+     */
+    private void applyGeneration(int generation) {
+        mRenderGeneration = generation;
+        mFront = null;
+        for (Frame frame : mFrames) {
+            synchronized (frame) {
+                if (frame.mBitmap != null && (frame.mBitmap.getWidth() != mWidth
+                        || frame.mBitmap.getHeight() != mHeight)) {
+                    frame.mBitmap.recycle();
+                    frame.mBitmap = null;
+                }
+            }
+        }
+        if (mLastModel != null) {
+            prerender(mLastModel);
+        }
+    }
+
+    private void releaseBitmaps() {
+        for (Frame frame : mFrames) {
+            synchronized (frame) {
+                if (frame.mBitmap != null) {
+                    frame.mBitmap.recycle();
+                    frame.mBitmap = null;
+                }
+            }
+        }
+    }
+}
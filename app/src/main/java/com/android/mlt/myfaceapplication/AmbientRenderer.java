@@ -0,0 +1,215 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+/**
+ * 微光模式渲染。
+ * <p>
+ * 刻度预先绘制到只含透明度的位图中，每分钟一帧只需一次贴图、几行文字和两根指针。
+ * 低位微光屏幕关闭抗锯齿并只使用白色；防烧屏屏幕只保留整点刻度，
+ * 指针改为描边轮廓，并且每分钟整体平移几个像素。
+ */
+final class AmbientRenderer {
+
+    // 防烧屏平移偏移序列，单位像素
+    private static final int[][] BURN_IN_OFFSETS = {
+            {0, 0}, {3, 0}, {3, 3}, {0, 3}, {-3, 3}, {-3, 0}, {-3, -3}, {0, -3}, {3, -3}
+    };
+
+    private static final float OUTLINE_STROKE_WIDTH = 1f;
+
+    private final float mHourStrokeWidth;
+    private final float mMinuteStrokeWidth;
+    private final float mCenterRadius;
+
+    private boolean mLowBit;
+    private boolean mBurnInProtection;
+
+    // 表盘几何
+    private int mWidth;
+    private int mHeight;
+    private float mCenterX;
+    private float mCenterY;
+    private float mHourHandLength;
+    private float mMinuteHandLength;
+    private float[] mLongTicks;
+    private float[] mShortTicks;
+
+    // 预渲染的刻度
+    private Bitmap mDial;
+    private boolean mDialValid;
+
+    // 防烧屏时指针轮廓，指向 12 点
+    private final RectF mHourOutline = new RectF();
+    private final RectF mMinuteOutline = new RectF();
+
+    private final Paint mDialPaint = new Paint();
+    private final Paint mHandPaint = new Paint();
+    private final Paint mTextPaint;
+    private final Paint mSmallTextPaint;
+
+    /**
+     * @param textPaint      日期、电量文字画笔，复制后使用
+     * @param smallTextPaint 未读通知文字画笔，复制后使用
+     */
+    AmbientRenderer(float hourStrokeWidth, float minuteStrokeWidth, float centerRadius,
+                    Paint textPaint, Paint smallTextPaint) {
+        mHourStrokeWidth = hourStrokeWidth;
+        mMinuteStrokeWidth = minuteStrokeWidth;
+        mCenterRadius = centerRadius;
+        mTextPaint = new Paint(textPaint);
+        mSmallTextPaint = new Paint(smallTextPaint);
+        mHandPaint.setStrokeCap(Paint.Cap.ROUND);
+        mHandPaint.setStyle(Paint.Style.STROKE);
+        updatePaints();
+    }
+
+    /**
+     * 屏幕属性变化
+     *
+     * @param lowBit           低位微光
+     * @param burnInProtection 需要防烧屏
+     */
+    void setProperties(boolean lowBit, boolean burnInProtection) {
+        if (mLowBit == lowBit && mBurnInProtection == burnInProtection) {
+            return;
+        }
+        mLowBit = lowBit;
+        mBurnInProtection = burnInProtection;
+        mDialValid = false;
+        updatePaints();
+    }
+
+    /**
+     * 表盘尺寸或屏幕形状变化
+     */
+    void setGeometry(FaceGeometry geometry) {
+        int width = geometry.getWidth();
+        int height = geometry.getHeight();
+        float centerX = geometry.getCenterX();
+        float centerY = geometry.getCenterY();
+        float hourHandLength = geometry.getHourHandLength();
+        float minuteHandLength = geometry.getMinuteHandLength();
+        mWidth = width;
+        mHeight = height;
+        mCenterX = centerX;
+        mCenterY = centerY;
+        mHourHandLength = hourHandLength;
+        mMinuteHandLength = minuteHandLength;
+        mLongTicks = geometry.getLongTicks();
+        mShortTicks = geometry.getShortTicks();
+
+        mHourOutline.set(centerX - mHourStrokeWidth / 2, centerY - hourHandLength,
+                centerX + mHourStrokeWidth / 2, centerY - mCenterRadius);
+        mMinuteOutline.set(centerX - mMinuteStrokeWidth / 2, centerY - minuteHandLength,
+                centerX + mMinuteStrokeWidth / 2, centerY - mCenterRadius);
+
+        if (mDial != null && (mDial.getWidth() != width || mDial.getHeight() != height)) {
+            mDial.recycle();
+            mDial = null;
+        }
+        mDialValid = false;
+    }
+
+    /**
+     * 绘制一帧微光表盘
+     *
+     * @param render 绘制命令
+     * @param model  当前快照
+     */
+    void draw(RenderCommands render, FrameModel model) {
+        if (!mDialValid) {
+            buildDial();
+        }
+        render.drawColor(Color.BLACK);
+        render.save();
+        if (mBurnInProtection) {
+            int[] offset = BURN_IN_OFFSETS[
+                    (int) (model.getMinute() % BURN_IN_OFFSETS.length)];
+            render.translate(offset[0], offset[1]);
+        }
+        if (mDial != null) {
+            render.drawBitmap(mDial, 0, 0, mDialPaint);
+        }
+
+        model.getDate().draw(render, mTextPaint);
+        model.getBattery().draw(render, mTextPaint);
+        if (model.getNotice() != null) {
+            model.getNotice().draw(render, mSmallTextPaint);
+        }
+
+        final float minutesRotation = model.getMinutesRotation();
+        final float hoursRotation = model.getHoursRotation();
+        render.rotate(hoursRotation, mCenterX, mCenterY);
+        if (mBurnInProtection) {
+            mHandPaint.setStrokeWidth(OUTLINE_STROKE_WIDTH);
+            render.drawRect(mHourOutline, mHandPaint);
+        } else {
+            mHandPaint.setStrokeWidth(mHourStrokeWidth);
+            render.drawLine(mCenterX, mCenterY - mCenterRadius,
+                    mCenterX, mCenterY - mHourHandLength, mHandPaint);
+        }
+        render.rotate(minutesRotation - hoursRotation, mCenterX, mCenterY);
+        if (mBurnInProtection) {
+            render.drawRect(mMinuteOutline, mHandPaint);
+        } else {
+            mHandPaint.setStrokeWidth(mMinuteStrokeWidth);
+            render.drawLine(mCenterX, mCenterY - mCenterRadius,
+                    mCenterX, mCenterY - mMinuteHandLength, mHandPaint);
+        }
+        mHandPaint.setStrokeWidth(OUTLINE_STROKE_WIDTH);
+        render.drawCircle(mCenterX, mCenterY, mCenterRadius, mHandPaint);
+        render.restore();
+    }
+
+    void recycle() {
+        if (mDial != null) {
+            mDial.recycle();
+            mDial = null;
+        }
+        mDialValid = false;
+    }
+
+    private void updatePaints() {
+        int handColor = mLowBit ? Color.WHITE : Color.LTGRAY;
+        boolean antiAlias = !mLowBit;
+
+        mDialPaint.setColor(Color.WHITE);
+        mHandPaint.setColor(handColor);
+        mHandPaint.setAntiAlias(antiAlias);
+        mTextPaint.setColor(handColor);
+        mTextPaint.setAntiAlias(antiAlias);
+        mSmallTextPaint.setColor(handColor);
+        mSmallTextPaint.setAntiAlias(antiAlias);
+    }
+
+    /**
+     * 把刻度绘制到只含透明度的位图，不使用抗锯齿，像素只有全透明和不透明两种
+     */
+    private void buildDial() {
+        mDialValid = true;
+        if (mWidth <= 0 || mHeight <= 0) {
+            return;
+        }
+        if (mDial == null) {
+            mDial = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ALPHA_8);
+        } else {
+            mDial.eraseColor(Color.TRANSPARENT);
+        }
+        Canvas canvas = new Canvas(mDial);
+        Paint tickPaint = new Paint();
+        tickPaint.setColor(Color.WHITE);
+        tickPaint.setAntiAlias(false);
+        tickPaint.setStrokeWidth(mBurnInProtection ? OUTLINE_STROKE_WIDTH : 2f);
+
+        canvas.drawLines(mLongTicks, tickPaint);
+        if (!mBurnInProtection) {
+            // 防烧屏时只保留整点刻度
+            canvas.drawLines(mShortTicks, tickPaint);
+        }
+    }
+}
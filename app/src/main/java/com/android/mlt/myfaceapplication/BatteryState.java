@@ -0,0 +1,63 @@
+package com.android.mlt.myfaceapplication;
+
+import android.content.Intent;
+import android.os.BatteryManager;
+
+/**
+ * 电池状态缓存。
+ * <p>
+ * 数据来自 {@link Intent#ACTION_BATTERY_CHANGED} 广播，绘制时直接读取字段，
+ * 不再每帧通过 {@link BatteryManager} 发起跨进程调用。
+ */
+final class BatteryState {
+
+    // 电量百分比，未知时为 -1
+    private int mPercent = -1;
+    // 是否在充电
+    private boolean mCharging;
+    // 电池温度，单位 0.1 摄氏度
+    private int mTemperature;
+
+    /**
+     * 根据电池广播更新状态
+     *
+     * @param intent ACTION_BATTERY_CHANGED 广播
+     * @return 显示的电量百分比是否变化
+     */
+    boolean update(Intent intent) {
+        if (intent == null) {
+            return false;
+        }
+        int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, 100);
+        int status = intent.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+        mCharging = status == BatteryManager.BATTERY_STATUS_CHARGING
+                || status == BatteryManager.BATTERY_STATUS_FULL;
+        mTemperature = intent.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0);
+
+        int percent = level < 0 || scale <= 0 ? -1 : Math.round(level * 100f / scale);
+        if (percent == mPercent) {
+            return false;
+        }
+        mPercent = percent;
+        return true;
+    }
+
+    /**
+     * @return 电量百分比，未知时为 -1
+     */
+    int getPercent() {
+        return mPercent;
+    }
+
+    boolean isCharging() {
+        return mCharging;
+    }
+
+    /**
+     * @return 电池温度，单位 0.1 摄氏度
+     */
+    int getTemperature() {
+        return mTemperature;
+    }
+}
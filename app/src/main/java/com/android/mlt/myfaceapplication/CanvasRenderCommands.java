@@ -0,0 +1,117 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * 直接转发到 {@link Canvas} 的绘制命令
+ */
+final class CanvasRenderCommands implements RenderCommands {
+
+    private Canvas mCanvas;
+
+    @Override
+    public void setTarget(int target, Canvas canvas) {
+        mCanvas = canvas;
+    }
+
+    @Override
+    public int getWidth() {
+        return mCanvas.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return mCanvas.getHeight();
+    }
+
+    @Override
+    public void save() {
+        mCanvas.save();
+    }
+
+    @Override
+    public void restore() {
+        mCanvas.restore();
+    }
+
+    @Override
+    public void rotate(float degrees, float px, float py) {
+        mCanvas.rotate(degrees, px, py);
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+        mCanvas.translate(dx, dy);
+    }
+
+    @Override
+    public void clipRect(RectF rect) {
+        mCanvas.clipRect(rect);
+    }
+
+    @Override
+    public void drawColor(int color) {
+        mCanvas.drawColor(color);
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+        mCanvas.drawLine(startX, startY, stopX, stopY, paint);
+    }
+
+    @Override
+    public void drawLines(float[] points, Paint paint) {
+        mCanvas.drawLines(points, paint);
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, Paint paint) {
+        mCanvas.drawCircle(cx, cy, radius, paint);
+    }
+
+    @Override
+    public void drawRect(RectF rect, Paint paint) {
+        mCanvas.drawRect(rect, paint);
+    }
+
+    @Override
+    public void drawArc(RectF oval, float startAngle, float sweepAngle, boolean useCenter,
+                        Paint paint) {
+        mCanvas.drawArc(oval, startAngle, sweepAngle, useCenter, paint);
+    }
+
+    @Override
+    public void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
+        mCanvas.drawText(text, index, count, x, y, paint);
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+        mCanvas.drawBitmap(bitmap, left, top, paint);
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Matrix matrix, Paint paint) {
+        mCanvas.drawBitmap(bitmap, matrix, paint);
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+        mCanvas.drawBitmap(bitmap, src, dst, paint);
+    }
+
+    @Override
+    public float measureText(Paint paint, char[] text, int index, int count) {
+        return paint.measureText(text, index, count);
+    }
+
+    @Override
+    public void getTextBounds(Paint paint, char[] text, int index, int count, Rect bounds) {
+        paint.getTextBounds(text, index, count, bounds);
+    }
+}
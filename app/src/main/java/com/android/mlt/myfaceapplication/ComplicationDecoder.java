@@ -0,0 +1,245 @@
+package com.android.mlt.myfaceapplication;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Icon;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Process;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.ComplicationText;
+import android.util.LruCache;
+
+/**
+ * 复杂功能数据的后台解码。
+ * <p>
+ * 文字取值、测量和图标加载都在自己的低优先级线程完成，结果以 {@link ComplicationLayout}
+ * 的形式回到主线程。图标加载可能很慢，不与 {@link EngineWorker} 共用线程，
+ * 以免推迟快照发布和微光预渲染。同一槽位在解码前多次更新时只解码最后一次。
+ * 图标位图按来源和尺寸缓存在按字节限制大小的 LRU 缓存中，只在后台线程访问。
+ */
+final class ComplicationDecoder {
+
+    /**
+     * 解码结果回调，在主线程执行
+     */
+    interface Callback {
+        /**
+         * @param id     槽位
+         * @param layout 解码结果，没有可显示内容时为 null
+         */
+        void onComplicationDecoded(int id, ComplicationLayout layout);
+    }
+
+    private static final int MSG_DECODE = 0;
+    private static final int MSG_DECODED = 1;
+
+    // 图标缓存上限
+    private static final int ICON_CACHE_BYTES = 1024 * 1024;
+
+    private final Context mContext;
+    private final Callback mCallback;
+    private final HandlerThread mThread;
+    private final Handler mWorker;
+    private final Handler mMain;
+
+    // 待解码的请求，主线程写入，后台线程取出
+    private final Request[] mPending;
+
+    // 以下只在后台线程访问
+    private final Paint mTextPaint;
+    private final int mIconColor;
+    private final LruCache<String, Bitmap> mIcons = new LruCache<String, Bitmap>(ICON_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getByteCount();
+        }
+    };
+
+    /**
+     * @param slotCount 槽位个数，槽位编号为 0 ~ slotCount - 1
+     * @param textPaint 文字画笔，复制后在后台线程测量
+     */
+    ComplicationDecoder(Context context, int slotCount, Paint textPaint, Callback callback) {
+        mContext = context;
+        mCallback = callback;
+        mPending = new Request[slotCount];
+        mTextPaint = new Paint(textPaint);
+        mIconColor = textPaint.getColor();
+
+        mMain = new Handler(Looper.getMainLooper(), new Handler.Callback() {
+            @Override
+            public boolean handleMessage(Message msg) {
+                mCallback.onComplicationDecoded(msg.arg1, (ComplicationLayout) msg.obj);
+                return true;
+            }
+        });
+        mThread = new HandlerThread("complication-decoder", Process.THREAD_PRIORITY_BACKGROUND);
+        mThread.start();
+        mWorker = new Handler(mThread.getLooper(), new Handler.Callback() {
+            @Override
+            public boolean handleMessage(Message msg) {
+                Request request;
+                synchronized (mPending) {
+                    request = mPending[msg.arg1];
+                    mPending[msg.arg1] = null;
+                }
+                if (request != null) {
+                    ComplicationLayout layout = decode(request);
+                    mMain.sendMessage(mMain.obtainMessage(MSG_DECODED, request.mId, 0, layout));
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * 提交解码请求，立即返回
+     *
+     * @param id     槽位
+     * @param data   复杂功能数据，可为 null
+     * @param bounds 槽位在表盘上的区域
+     */
+    void decode(int id, ComplicationData data, RectF bounds) {
+        Request request = new Request(id, data, new RectF(bounds));
+        boolean queued;
+        synchronized (mPending) {
+            queued = mPending[id] != null;
+            mPending[id] = request;
+        }
+        if (!queued) {
+            mWorker.sendMessage(mWorker.obtainMessage(MSG_DECODE, id, 0));
+        }
+    }
+
+    /**
+     * 丢弃未完成的请求和结果，线程在当前解码结束后退出
+     */
+    void quit() {
+        synchronized (mPending) {
+            for (int i = 0; i < mPending.length; i++) {
+                mPending[i] = null;
+            }
+        }
+        mWorker.removeMessages(MSG_DECODE);
+        mMain.removeMessages(MSG_DECODED);
+        mThread.quitSafely();
+    }
+
+    private ComplicationLayout decode(Request request) {
+        ComplicationData data = request.mData;
+        long now = System.currentTimeMillis();
+        if (data == null || !data.isActive(now)) {
+            return null;
+        }
+        Icon icon;
+        boolean tint = true;
+        switch (data.getType()) {
+            case ComplicationData.TYPE_SHORT_TEXT:
+            case ComplicationData.TYPE_RANGED_VALUE:
+            case ComplicationData.TYPE_ICON:
+                icon = data.getIcon();
+                break;
+            case ComplicationData.TYPE_SMALL_IMAGE:
+                icon = data.getSmallImage();
+                tint = false;
+                break;
+            default:
+                return null;
+        }
+        ComplicationText shortText = data.getShortText();
+        ComplicationText shortTitle = data.getShortTitle();
+        CharSequence text = shortText != null ? shortText.getText(mContext, now) : null;
+        CharSequence title = shortTitle != null ? shortTitle.getText(mContext, now) : null;
+        if (text != null && text.length() == 0) {
+            text = null;
+        }
+        if (title != null && title.length() == 0) {
+            title = null;
+        }
+        boolean timeDependent = (shortText != null && shortText.isTimeDependent())
+                || (shortTitle != null && shortTitle.isTimeDependent());
+
+        // 图标在上，文字和标题依次在下，整体垂直居中
+        RectF bounds = request.mBounds;
+        Paint.FontMetrics metrics = mTextPaint.getFontMetrics();
+        float lineHeight = metrics.descent - metrics.ascent;
+        int iconSize = (int) (bounds.width() * (text != null ? 0.4f : 0.6f));
+        Bitmap iconBitmap = icon != null ? loadIcon(icon, iconSize, tint) : null;
+        float height = (iconBitmap != null ? iconSize : 0)
+                + (text != null ? lineHeight : 0) + (title != null ? lineHeight : 0);
+        if (height == 0) {
+            return null;
+        }
+        ComplicationLayout layout = new ComplicationLayout(timeDependent);
+        float top = bounds.centerY() - height / 2;
+        if (iconBitmap != null) {
+            layout.setIcon(iconBitmap, Math.round(bounds.centerX() - iconSize / 2f),
+                    Math.round(top));
+            top += iconSize;
+        }
+        if (text != null) {
+            layout.setText(text, bounds.centerX() - measure(text) / 2, top - metrics.ascent);
+            top += lineHeight;
+        }
+        if (title != null) {
+            layout.setTitle(title, bounds.centerX() - measure(title) / 2, top - metrics.ascent);
+        }
+        return layout;
+    }
+
+    private float measure(CharSequence text) {
+        return mTextPaint.measureText(text, 0, text.length());
+    }
+
+    /**
+     * 加载图标，资源图标按来源包名、资源编号和尺寸缓存
+     */
+    private Bitmap loadIcon(Icon icon, int size, boolean tint) {
+        if (size <= 0) {
+            return null;
+        }
+        String key = null;
+        if (icon.getType() == Icon.TYPE_RESOURCE) {
+            key = icon.getResPackage() + '/' + icon.getResId() + '@' + size + (tint ? "t" : "");
+            Bitmap cached = mIcons.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Drawable drawable = icon.loadDrawable(mContext);
+        if (drawable == null) {
+            return null;
+        }
+        if (tint) {
+            // 资源图标共享状态，着色前复制一份，不影响其它使用者
+            drawable = drawable.mutate();
+            drawable.setTint(mIconColor);
+        }
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        drawable.setBounds(0, 0, size, size);
+        drawable.draw(new Canvas(bitmap));
+        if (key != null) {
+            mIcons.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    private static final class Request {
+        final int mId;
+        final ComplicationData mData;
+        final RectF mBounds;
+
+        Request(int id, ComplicationData data, RectF bounds) {
+            mId = id;
+            mData = data;
+            mBounds = bounds;
+        }
+    }
+}
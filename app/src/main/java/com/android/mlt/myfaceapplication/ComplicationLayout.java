@@ -0,0 +1,83 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Paint;
+
+/**
+ * 已解码、已排版的复杂功能内容。
+ * <p>
+ * 由 {@link ComplicationDecoder} 在后台线程创建并填充，交给绘制线程后不再修改，
+ * 绘制时只需贴图和绘制文字，不再测量。
+ */
+final class ComplicationLayout {
+
+    private final boolean mTimeDependent;
+
+    private Bitmap mIcon;
+    private float mIconLeft;
+    private float mIconTop;
+
+    private char[] mText;
+    private float mTextX;
+    private float mTextY;
+
+    private char[] mTitle;
+    private float mTitleX;
+    private float mTitleY;
+
+    /**
+     * @param timeDependent 文字随时间变化，需要每分钟重新解码
+     */
+    ComplicationLayout(boolean timeDependent) {
+        mTimeDependent = timeDependent;
+    }
+
+    void setIcon(Bitmap icon, float left, float top) {
+        mIcon = icon;
+        mIconLeft = left;
+        mIconTop = top;
+    }
+
+    void setText(CharSequence text, float x, float y) {
+        mText = toChars(text);
+        mTextX = x;
+        mTextY = y;
+    }
+
+    void setTitle(CharSequence title, float x, float y) {
+        mTitle = toChars(title);
+        mTitleX = x;
+        mTitleY = y;
+    }
+
+    boolean isTimeDependent() {
+        return mTimeDependent;
+    }
+
+    /**
+     * 绘制图标和文字
+     *
+     * @param render    绘制命令
+     * @param textPaint 文字画笔，字号须与解码时一致
+     * @param iconPaint 图标画笔
+     */
+    void draw(RenderCommands render, Paint textPaint, Paint iconPaint) {
+        if (mIcon != null) {
+            render.drawBitmap(mIcon, mIconLeft, mIconTop, iconPaint);
+        }
+        if (mText != null) {
+            render.drawText(mText, 0, mText.length, mTextX, mTextY, textPaint);
+        }
+        if (mTitle != null) {
+            render.drawText(mTitle, 0, mTitle.length, mTitleX, mTitleY, textPaint);
+        }
+    }
+
+    private static char[] toChars(CharSequence text) {
+        char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = text.charAt(i);
+        }
+        return chars;
+    }
+}
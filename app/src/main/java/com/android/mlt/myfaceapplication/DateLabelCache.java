@@ -0,0 +1,164 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Paint;
+import android.text.BidiFormatter;
+import android.text.format.DateFormat;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * 按系统语言格式化并排版的日期标签，缓存今天和明天。
+ * <p>
+ * 日期格式由当前语言和所选样式的骨架生成（默认 "月日星期"），经 {@link BidiFormatter} 包装后在从右到左的
+ * 语言中也能正确显示。跨过零点时直接换用已排版的明天，新的明天在发布快照后再由
+ * {@link #prefetch()} 生成。语言、时区、样式或表盘尺寸变化时整体作废。
+ * 只在 {@link EngineWorker} 的后台线程使用，返回的标签发布后不再修改。
+ */
+final class DateLabelCache {
+
+    /**
+     * 日期样式：月日星期缩写、年月日、星期全称。具体顺序和分隔符由语言决定
+     */
+    private static final String[] SKELETONS = {"MMMdEEE", "yMMMd", "EEEE"};
+    static final int STYLE_COUNT = SKELETONS.length;
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    private final Paint mPaint;
+    private final RenderCommands mMeasure;
+
+    private Locale mLocale;
+    private TimeZone mTimeZone;
+    private int mStyle;
+    // 语言、时区或样式变化时重新创建
+    private SimpleDateFormat mFormat;
+    private BidiFormatter mBidi;
+
+    private int mWidth;
+    private int mHeight;
+    private float mAnchorY;
+
+    // mDay 为今天的本地日期编号，mTomorrow 可能尚未生成
+    private long mDay = Long.MIN_VALUE;
+    private TextLabel mToday;
+    private TextLabel mTomorrow;
+
+    /**
+     * @param paint   测量使用的画笔，须与绘制一致
+     * @param measure 测量使用的绘制命令
+     */
+    DateLabelCache(Paint paint, RenderCommands measure, Locale locale, TimeZone timeZone) {
+        mPaint = paint;
+        mMeasure = measure;
+        mLocale = locale;
+        mTimeZone = timeZone;
+    }
+
+    void setLocale(Locale locale) {
+        if (locale.equals(mLocale)) {
+            return;
+        }
+        mLocale = locale;
+        mFormat = null;
+        invalidate();
+    }
+
+    void setTimeZone(TimeZone timeZone) {
+        if (timeZone.getID().equals(mTimeZone.getID()) && timeZone.hasSameRules(mTimeZone)) {
+            return;
+        }
+        mTimeZone = timeZone;
+        mFormat = null;
+        invalidate();
+    }
+
+    /**
+     * @param style 0 ~ {@link #STYLE_COUNT} - 1
+     */
+    void setStyle(int style) {
+        if (style == mStyle) {
+            return;
+        }
+        mStyle = style;
+        mFormat = null;
+        invalidate();
+    }
+
+    /**
+     * 表盘尺寸或文字位置变化
+     */
+    void setLayout(int width, int height, float anchorY) {
+        mWidth = width;
+        mHeight = height;
+        mAnchorY = anchorY;
+        invalidate();
+    }
+
+    /**
+     * @param localDay 本地日期编号（自 1970-01-01 起的天数）
+     * @return 该日期的标签
+     */
+    TextLabel get(long localDay) {
+        if (localDay == mDay && mToday != null) {
+            return mToday;
+        }
+        if (localDay == mDay + 1 && mTomorrow != null) {
+            // 跨过零点，明天已排版
+            mToday = mTomorrow;
+        } else {
+            mToday = build(localDay);
+        }
+        mTomorrow = null;
+        mDay = localDay;
+        return mToday;
+    }
+
+    /**
+     * 只读取已排版的今天或明天的标签，不改变缓存
+     *
+     * @param localDay 本地日期编号（自 1970-01-01 起的天数）
+     * @return 尚未排版时为 null
+     */
+    TextLabel peek(long localDay) {
+        if (localDay == mDay) {
+            return mToday;
+        }
+        return localDay == mDay + 1 ? mTomorrow : null;
+    }
+
+    /**
+     * 生成明天的标签，在快照发布后调用
+     */
+    void prefetch() {
+        if (mToday != null && mTomorrow == null) {
+            mTomorrow = build(mDay + 1);
+        }
+    }
+
+    private void invalidate() {
+        mDay = Long.MIN_VALUE;
+        mToday = null;
+        mTomorrow = null;
+    }
+
+    private TextLabel build(long localDay) {
+        if (mFormat == null) {
+            mFormat = new SimpleDateFormat(
+                    DateFormat.getBestDateTimePattern(mLocale, SKELETONS[mStyle]), mLocale);
+            mFormat.setTimeZone(mTimeZone);
+            mBidi = BidiFormatter.getInstance(mLocale);
+        }
+        // 取当天正午，避开零点附近的夏令时切换
+        long localNoon = localDay * DAY_MS + DAY_MS / 2;
+        long utcNoon = localNoon - mTimeZone.getOffset(localNoon - mTimeZone.getRawOffset());
+        String text = mBidi.unicodeWrap(mFormat.format(new Date(utcNoon)));
+        TextLabel label = new TextLabel(text.length());
+        label.setText(text);
+        label.layout(mMeasure, mPaint, mWidth, mHeight, mWidth / 2f, mAnchorY,
+                TextLabel.ALIGN_CENTER);
+        return label;
+    }
+}
@@ -0,0 +1,411 @@
+package com.android.mlt.myfaceapplication;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Process;
+import android.text.format.DateFormat;
+
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 表盘引擎的后台线程。
+ * <p>
+ * 时区、语言和电池广播、日期格式化、文字测量都在这里完成，每分钟或输入变化时生成新的
+ * {@link FrameModel} 并通过 volatile 引用发布，绘制线程不再等待系统服务。
+ * 除 {@link #getModel()} 外的公开方法只向后台线程投递消息，立即返回。
+ */
+final class EngineWorker {
+
+    /**
+     * 新快照发布，在后台线程回调
+     */
+    interface Listener {
+        /**
+         * @param source 触发更新的 {@code TickScheduler.SOURCE_*}
+         */
+        void onFrameModelPublished(FrameModel model, int source);
+    }
+
+    private static final long MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final TextLabel EMPTY_LABEL = new TextLabel(0);
+
+    private static final int MSG_START = 0;
+    private static final int MSG_STOP = 1;
+    private static final int MSG_UPDATE = 2;
+    private static final int MSG_GEOMETRY = 3;
+    private static final int MSG_UNREAD = 4;
+    private static final int MSG_AMBIENT = 5;
+    private static final int MSG_DATE_STYLE = 6;
+
+    // 只更新快照，不通知重绘
+    private static final int NO_REDRAW = 0;
+
+    private final Context mContext;
+    private final Listener mListener;
+    private final HandlerThread mThread;
+    private final Handler mHandler;
+
+    private volatile FrameModel mModel;
+
+    // 以下只在后台线程访问
+    private final WatchTime mTime = new WatchTime(TimeZone.getDefault());
+    // 预渲染下一分钟使用，不影响发布的快照
+    private final WatchTime mNextTime = new WatchTime(TimeZone.getDefault());
+    private final BatteryState mBatteryState = new BatteryState();
+    private final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_LOCALE_CHANGED.equals(intent.getAction())) {
+                // 语言变化，重新生成日期格式
+                mDateLabels.setLocale(Locale.getDefault());
+            } else {
+                // 时区或系统时间变化，重新计算当天零点和偏移；切换 12/24 小时制也发送时间变化广播
+                m24HourFormat = DateFormat.is24HourFormat(mContext);
+                TimeZone timeZone = TimeZone.getDefault();
+                mTime.setTimeZone(timeZone);
+                mNextTime.setTimeZone(timeZone);
+                mDateLabels.setTimeZone(timeZone);
+            }
+            update(TickScheduler.SOURCE_TIME_ZONE);
+        }
+    };
+    private final BroadcastReceiver mBatteryReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            boolean wasCharging = mBatteryState.isCharging();
+            int oldDegrees = mBatteryState.getTemperature() / 10;
+            boolean percentChanged = mBatteryState.update(intent);
+            if (percentChanged) {
+                // 显示的电量百分比变化，微光模式等到下一分钟再重绘
+                update(mAmbient ? NO_REDRAW : TickScheduler.SOURCE_MODEL);
+            } else if (wasCharging != mBatteryState.isCharging()
+                    || oldDegrees != mBatteryState.getTemperature() / 10) {
+                // 只影响绘制质量档位，发布新快照但不单独重绘
+                update(NO_REDRAW);
+            }
+        }
+    };
+    private boolean mStarted;
+    private boolean mAmbient;
+    // 微光模式下一分钟画面，未设置时为 null
+    private AmbientPrerenderer mPrerenderer;
+
+    // 测量用画笔和绘制命令
+    private final Paint mDatePaint;
+    private final Paint mNoticePaint;
+    private final CanvasRenderCommands mMeasure = new CanvasRenderCommands();
+    private final DateLabelCache mDateLabels;
+    // 尚未拿到表盘尺寸时为 null
+    private FaceGeometry mGeometry;
+
+    private long mVersion;
+    private int mUnreadCount;
+    // 系统的 24 小时制设置，启动和时间变化时读取
+    private boolean m24HourFormat;
+
+    // 当前快照使用的文字，发布后不再修改，内容变化时换成新对象
+    private TextLabel mDateLabel = EMPTY_LABEL;
+    private TextLabel mBatteryLabel = EMPTY_LABEL;
+    private TextLabel mNoticeLabel;
+    private boolean mBatteryDirty = true;
+    private boolean mNoticeDirty = true;
+    private int mLabelPercent = Integer.MIN_VALUE;
+
+    // 电量、未读通知拼接
+    private final char[] mChars = new char[24];
+
+    /**
+     * @param datePaint    日期和电量画笔，复制后用于测量
+     * @param noticePaint  未读通知画笔，复制后用于测量
+     */
+    EngineWorker(Context context, Paint datePaint, Paint noticePaint, Listener listener) {
+        mContext = context;
+        mListener = listener;
+        mDatePaint = new Paint(datePaint);
+        mNoticePaint = new Paint(noticePaint);
+        mDateLabels = new DateLabelCache(mDatePaint, mMeasure, Locale.getDefault(),
+                TimeZone.getDefault());
+        m24HourFormat = DateFormat.is24HourFormat(context);
+        // 线程启动前生成第一个快照，绘制线程总能读到非空值
+        mModel = buildModel(System.currentTimeMillis());
+
+        mThread = new HandlerThread("engine-worker", Process.THREAD_PRIORITY_DEFAULT);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper(), new Handler.Callback() {
+            @Override
+            public boolean handleMessage(Message msg) {
+                switch (msg.what) {
+                    case MSG_START:
+                        handleStart();
+                        break;
+                    case MSG_STOP:
+                        handleStop();
+                        break;
+                    case MSG_UPDATE:
+                        update(TickScheduler.SOURCE_TIME_TICK);
+                        break;
+                    case MSG_GEOMETRY:
+                        mGeometry = (FaceGeometry) msg.obj;
+                        mDateLabels.setLayout(mGeometry.getWidth(), mGeometry.getHeight(),
+                                mGeometry.getDateBaseline());
+                        mBatteryDirty = true;
+                        mNoticeDirty = true;
+                        update(TickScheduler.SOURCE_MODEL);
+                        break;
+                    case MSG_UNREAD:
+                        if (mUnreadCount != msg.arg1) {
+                            mUnreadCount = msg.arg1;
+                            mNoticeDirty = true;
+                            update(mAmbient ? NO_REDRAW : TickScheduler.SOURCE_MODEL);
+                        }
+                        break;
+                    case MSG_AMBIENT:
+                        mAmbient = msg.arg1 != 0;
+                        long now = System.currentTimeMillis();
+                        // 微光模式只由 onTimeTick 更新，回到交互模式后恢复按分钟更新
+                        scheduleMinuteUpdate(now);
+                        // 刚进入微光模式，设备仍处于唤醒状态
+                        prerenderNextMinute(now);
+                        break;
+                    case MSG_DATE_STYLE:
+                        mDateLabels.setStyle(msg.arg1);
+                        update(TickScheduler.SOURCE_TAP);
+                        break;
+                    default:
+                        return false;
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * @return 后台线程的消息循环，供其它后台任务共用
+     */
+    Looper getLooper() {
+        return mThread.getLooper();
+    }
+
+    /**
+     * 微光模式下每次发布快照后预渲染下一分钟的画面，须在 {@link #start()} 之前调用
+     */
+    void setPrerenderer(AmbientPrerenderer prerenderer) {
+        mPrerenderer = prerenderer;
+    }
+
+    /**
+     * @return 最新快照，任意线程调用
+     */
+    FrameModel getModel() {
+        return mModel;
+    }
+
+    /**
+     * 表盘可见，注册广播并按分钟更新
+     */
+    void start() {
+        mHandler.sendEmptyMessage(MSG_START);
+    }
+
+    /**
+     * 表盘不可见，注销广播并停止更新
+     */
+    void stop() {
+        mHandler.sendEmptyMessage(MSG_STOP);
+    }
+
+    /**
+     * 立即生成新快照，例如 onTimeTick
+     */
+    void requestUpdate() {
+        mHandler.removeMessages(MSG_UPDATE);
+        mHandler.sendEmptyMessage(MSG_UPDATE);
+    }
+
+    /**
+     * 表盘尺寸或屏幕形状变化，文字按新的锚点重新排版
+     */
+    void setGeometry(FaceGeometry geometry) {
+        mHandler.sendMessage(mHandler.obtainMessage(MSG_GEOMETRY, geometry));
+    }
+
+    void setUnreadCount(int count) {
+        mHandler.sendMessage(mHandler.obtainMessage(MSG_UNREAD, count, 0));
+    }
+
+    /**
+     * 切换日期样式，重新排版后重绘
+     */
+    void setDateStyle(int style) {
+        mHandler.sendMessage(mHandler.obtainMessage(MSG_DATE_STYLE, style, 0));
+    }
+
+    void setAmbient(boolean ambient) {
+        mHandler.sendMessage(mHandler.obtainMessage(MSG_AMBIENT, ambient ? 1 : 0, 0));
+    }
+
+    void quit() {
+        mHandler.sendEmptyMessage(MSG_STOP);
+        mThread.quitSafely();
+    }
+
+    private void handleStart() {
+        if (mStarted) {
+            return;
+        }
+        mStarted = true;
+        // 不可见期间时区、语言和小时制可能已变化
+        m24HourFormat = DateFormat.is24HourFormat(mContext);
+        TimeZone timeZone = TimeZone.getDefault();
+        mTime.setTimeZone(timeZone);
+        mNextTime.setTimeZone(timeZone);
+        mDateLabels.setTimeZone(timeZone);
+        mDateLabels.setLocale(Locale.getDefault());
+        IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+        mContext.registerReceiver(mTimeZoneReceiver, filter, null, mHandler);
+        // 电池广播为粘性广播，注册时立即返回最新状态
+        IntentFilter batteryFilter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+        mBatteryState.update(
+                mContext.registerReceiver(mBatteryReceiver, batteryFilter, null, mHandler));
+        update(TickScheduler.SOURCE_MODEL);
+    }
+
+    private void handleStop() {
+        mHandler.removeMessages(MSG_UPDATE);
+        if (!mStarted) {
+            return;
+        }
+        mStarted = false;
+        mContext.unregisterReceiver(mTimeZoneReceiver);
+        mContext.unregisterReceiver(mBatteryReceiver);
+    }
+
+    /**
+     * 生成并发布快照，交互模式可见时安排下一分钟的更新
+     *
+     * @param source 通知绘制线程重绘的来源，{@link #NO_REDRAW} 表示不重绘
+     */
+    private void update(int source) {
+        long now = System.currentTimeMillis();
+        FrameModel model = buildModel(now);
+        mModel = model;
+        if (source != NO_REDRAW) {
+            mListener.onFrameModelPublished(model, source);
+        }
+        // 发布后再准备明天的日期，零点时直接使用
+        mDateLabels.prefetch();
+        scheduleMinuteUpdate(now);
+        prerenderNextMinute(now);
+    }
+
+    /**
+     * 交互模式可见时在下一分钟开始时更新。微光模式下系统每分钟调用 onTimeTick，
+     * 由它请求更新，这里不再另外定时，每分钟只唤醒一次
+     */
+    private void scheduleMinuteUpdate(long now) {
+        mHandler.removeMessages(MSG_UPDATE);
+        if (mStarted && !mAmbient) {
+            mHandler.sendEmptyMessageDelayed(MSG_UPDATE, MINUTE_MS - now % MINUTE_MS);
+        }
+    }
+
+    /**
+     * 微光模式下用下一分钟的快照预渲染画面。下一分钟的快照只替换时间和日期，
+     * 其余内容取自已发布的快照，不修改版本号、时间和当前标签，快照也不发布
+     */
+    private void prerenderNextMinute(long now) {
+        FrameModel current = mModel;
+        if (mPrerenderer == null || !mAmbient || !mStarted || !current.isLaidOut()) {
+            return;
+        }
+        long minute = now / MINUTE_MS + 1;
+        mNextTime.setTimeInMillis(minute * MINUTE_MS);
+        // 跨过零点时使用已预先排版的明天，尚未排版时不预渲染，到时同步绘制
+        TextLabel date = mDateLabels.peek(mNextTime.getLocalDay());
+        if (date == null) {
+            return;
+        }
+        mPrerenderer.prerender(new FrameModel(current.getVersion(), minute,
+                mNextTime.getHourOfDay(), mNextTime.getMinute(), m24HourFormat,
+                date, current.getBattery(), current.getNotice(),
+                current.getUnreadCount(), current.getBatteryPercent(), current.isCharging(),
+                current.getBatteryTemperature(), true));
+    }
+
+    private FrameModel buildModel(long now) {
+        mTime.setTimeInMillis(now);
+        boolean laidOut = mGeometry != null
+                && mGeometry.getWidth() > 0 && mGeometry.getHeight() > 0;
+        if (laidOut) {
+            updateDateLabel();
+            updateBatteryLabel();
+            updateNoticeLabel();
+        }
+        return new FrameModel(++mVersion, now / MINUTE_MS,
+                mTime.getHourOfDay(), mTime.getMinute(), m24HourFormat,
+                mDateLabel, mBatteryLabel, mNoticeLabel,
+                mUnreadCount, mBatteryState.getPercent(), mBatteryState.isCharging(),
+                mBatteryState.getTemperature(), laidOut);
+    }
+
+    /**
+     * 日期变化时换用缓存中已排版的标签
+     */
+    private void updateDateLabel() {
+        mDateLabel = mDateLabels.get(mTime.getLocalDay());
+    }
+
+    /**
+     * 电量百分比变化或尺寸变化时重新排版电量
+     */
+    private void updateBatteryLabel() {
+        int percent = mBatteryState.getPercent();
+        if (!mBatteryDirty && percent == mLabelPercent) {
+            return;
+        }
+        mBatteryDirty = false;
+        mLabelPercent = percent;
+        int length = percent < 0
+                ? CharFormat.append(mChars, 0, "--")
+                : CharFormat.appendInt(mChars, 0, percent);
+        mChars[length++] = '%';
+        TextLabel label = new TextLabel(8);
+        label.setText(mChars, length);
+        label.layout(mMeasure, mDatePaint, mGeometry.getWidth(), mGeometry.getHeight(),
+                mGeometry.getCenterX(), mGeometry.getBatteryBaseline(), TextLabel.ALIGN_CENTER);
+        mBatteryLabel = label;
+    }
+
+    /**
+     * 未读数量变化或尺寸变化时重新排版未读通知
+     */
+    private void updateNoticeLabel() {
+        if (!mNoticeDirty) {
+            return;
+        }
+        mNoticeDirty = false;
+        if (mUnreadCount <= 0) {
+            mNoticeLabel = null;
+            return;
+        }
+        int length = CharFormat.appendInt(mChars, 0, mUnreadCount);
+        length = CharFormat.append(mChars, length, " 条新通知");
+        TextLabel label = new TextLabel(24);
+        label.setText(mChars, length);
+        label.layout(mMeasure, mNoticePaint, mGeometry.getWidth(), mGeometry.getHeight(),
+                mGeometry.getCenterX(), mGeometry.getNoticeBaseline(), TextLabel.ALIGN_CENTER);
+        mNoticeLabel = label;
+    }
+}
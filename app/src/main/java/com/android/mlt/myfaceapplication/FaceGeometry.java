@@ -0,0 +1,168 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.RectF;
+
+/**
+ * 表盘几何的不可变快照。
+ * <p>
+ * 按表盘尺寸、圆形或方形、底部缺口（"平胎"屏幕）计算一次：刻度端点、指针长度、
+ * 文字锚点和复杂功能区域。刻度端点由 {@link TickLayout} 预先排成 {@code drawLines}
+ * 使用的数组，绘制时不再逐个旋转画布。
+ * 长度按屏幕半径相对 {@link #REFERENCE_RADIUS} 缩放，可以在线程间传递。
+ */
+final class FaceGeometry {
+
+    /**
+     * 原有尺寸常量对应的屏幕半径（360 像素圆屏）
+     */
+    static final float REFERENCE_RADIUS = 180f;
+
+    // 以下为 REFERENCE_RADIUS 下距屏幕边缘的像素数
+    private static final float DATE_GAP = 20f;
+    private static final float BATTERY_GAP = 40f;
+    private static final float NOTICE_GAP = 80f;
+    // 文字基线与底部缺口或屏幕下边缘的最小距离
+    private static final float BOTTOM_MARGIN = 8f;
+
+    private final int mWidth;
+    private final int mHeight;
+    private final boolean mRound;
+    private final int mBottomInset;
+
+    private final float mCenterX;
+    private final float mCenterY;
+    private final float mRadius;
+    private final float mScale;
+
+    private final float mHourHandLength;
+    private final float mMinuteHandLength;
+    private final float mSecondHandLength;
+
+    private final float[] mLongTicks = new float[TickLayout.LONG_TICK_VALUES];
+    private final float[] mShortTicks = new float[TickLayout.SHORT_TICK_VALUES];
+
+    private final float mDateBaseline;
+    private final float mBatteryBaseline;
+    private final float mNoticeBaseline;
+
+    private final RectF[] mComplicationBounds;
+
+    /**
+     * @param width        表盘宽
+     * @param height       表盘高
+     * @param round        圆形屏幕
+     * @param bottomInset  底部缺口高度，没有时为 0
+     * @param textSize     日期字号，决定文字锚点
+     * @param complicationCount 复杂功能槽位个数，槽位依次为左、右
+     */
+    FaceGeometry(int width, int height, boolean round, int bottomInset, float textSize,
+                 int complicationCount) {
+        mWidth = width;
+        mHeight = height;
+        mRound = round;
+        mBottomInset = bottomInset;
+        /*
+         * 中心取整个屏幕的中心而不是可用区域的中心，底部有缺口时表盘仍居中于整个屏幕
+         */
+        mCenterX = width / 2f;
+        mCenterY = height / 2f;
+        mRadius = Math.min(mCenterX, mCenterY);
+        mScale = mRadius / REFERENCE_RADIUS;
+
+        mSecondHandLength = mRadius * 0.875f;
+        mMinuteHandLength = mRadius * 0.75f;
+        mHourHandLength = mRadius * 0.5f;
+
+        TickLayout.layout(width, height, round, bottomInset, mScale, mLongTicks, mShortTicks);
+
+        float bottom = height - bottomInset - BOTTOM_MARGIN * mScale;
+        mDateBaseline = mCenterY - textSize - DATE_GAP * mScale;
+        mBatteryBaseline = Math.min(mCenterY + textSize + BATTERY_GAP * mScale, bottom);
+        mNoticeBaseline = Math.min(mCenterY + textSize + NOTICE_GAP * mScale, bottom);
+
+        // 复杂功能在中心左右各四分之一处
+        float size = mRadius * 2 / 5f;
+        mComplicationBounds = new RectF[complicationCount];
+        for (int i = 0; i < complicationCount; i++) {
+            float centerX = mCenterX + (i == 0 ? -mRadius / 2 : mRadius / 2);
+            mComplicationBounds[i] = new RectF(centerX - size / 2, mCenterY - size / 2,
+                    centerX + size / 2, mCenterY + size / 2);
+        }
+    }
+
+    /**
+     * 尺寸和屏幕形状是否与给定值一致
+     */
+    boolean matches(int width, int height, boolean round, int bottomInset) {
+        return mWidth == width && mHeight == height && mRound == round
+                && mBottomInset == bottomInset;
+    }
+
+    int getWidth() {
+        return mWidth;
+    }
+
+    int getHeight() {
+        return mHeight;
+    }
+
+    float getCenterX() {
+        return mCenterX;
+    }
+
+    float getCenterY() {
+        return mCenterY;
+    }
+
+    /**
+     * @return 中心到最近屏幕边缘的距离
+     */
+    float getRadius() {
+        return mRadius;
+    }
+
+    float getHourHandLength() {
+        return mHourHandLength;
+    }
+
+    float getMinuteHandLength() {
+        return mMinuteHandLength;
+    }
+
+    float getSecondHandLength() {
+        return mSecondHandLength;
+    }
+
+    /**
+     * @return 整点刻度端点，供 {@code drawLines} 使用，不得修改
+     */
+    float[] getLongTicks() {
+        return mLongTicks;
+    }
+
+    /**
+     * @return 全部 60 个短刻度端点，供 {@code drawLines} 使用，不得修改
+     */
+    float[] getShortTicks() {
+        return mShortTicks;
+    }
+
+    float getDateBaseline() {
+        return mDateBaseline;
+    }
+
+    float getBatteryBaseline() {
+        return mBatteryBaseline;
+    }
+
+    float getNoticeBaseline() {
+        return mNoticeBaseline;
+    }
+
+    /**
+     * @return 复杂功能槽位区域，也是点击区域，不得修改
+     */
+    RectF getComplicationBounds(int id) {
+        return mComplicationBounds[id];
+    }
+}
@@ -0,0 +1,97 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/**
+ * 离屏缓存图层。
+ * <p>
+ * 图层内容由一个失效键标识，只有键变化或被显式置为失效时才需要重新绘制，
+ * 其余帧直接把缓存位图贴到屏幕画布上。
+ */
+final class FrameLayer {
+
+    /**
+     * 无效键，任何图层内容都不会使用该值
+     */
+    static final long INVALID_KEY = Long.MIN_VALUE;
+
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+    private long mKey = INVALID_KEY;
+
+    /**
+     * 按表盘尺寸重新分配位图，原有内容随之失效
+     *
+     * @param width  宽
+     * @param height 高
+     */
+    void resize(int width, int height) {
+        if (mBitmap != null
+                && mBitmap.getWidth() == width && mBitmap.getHeight() == height) {
+            invalidate();
+            return;
+        }
+        recycle();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mBitmap);
+    }
+
+    /**
+     * 缓存内容是否与给定键一致
+     */
+    boolean isValid(long key) {
+        return mBitmap != null && key != INVALID_KEY && mKey == key;
+    }
+
+    /**
+     * 清空图层并开始以给定键重新绘制
+     *
+     * @param key 新内容对应的失效键
+     * @return 图层画布
+     */
+    Canvas begin(long key) {
+        mBitmap.eraseColor(Color.TRANSPARENT);
+        mKey = key;
+        return mCanvas;
+    }
+
+    /**
+     * 显式置为失效，下一帧重新绘制
+     */
+    void invalidate() {
+        mKey = INVALID_KEY;
+    }
+
+    boolean isAllocated() {
+        return mBitmap != null;
+    }
+
+    /**
+     * 把缓存内容贴到当前绘制目标
+     */
+    void draw(RenderCommands render) {
+        render.drawBitmap(mBitmap, 0, 0, null);
+    }
+
+    /**
+     * 以指定画笔（例如带透明度）贴上缓存内容
+     */
+    void draw(RenderCommands render, Paint paint) {
+        render.drawBitmap(mBitmap, 0, 0, paint);
+    }
+
+    void recycle() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+            mCanvas = null;
+        }
+        mKey = INVALID_KEY;
+    }
+}
@@ -0,0 +1,150 @@
+package com.android.mlt.myfaceapplication;
+
+/**
+ * 一分钟内表盘内容的不可变快照。
+ * <p>
+ * 由 {@link EngineWorker} 在后台线程生成，包含已排版的文字、计数和时分指针角度，
+ * 通过一个 volatile 引用交给绘制线程。快照及其中的 {@link TextLabel} 发布后不再修改，
+ * 绘制线程只读取并发出绘制命令。
+ */
+final class FrameModel {
+
+    private final long mVersion;
+    private final long mMinute;
+    private final int mHourOfDay;
+    private final int mMinuteOfHour;
+    private final boolean m24HourFormat;
+
+    private final TextLabel mDate;
+    private final TextLabel mBattery;
+    private final TextLabel mNotice;
+
+    private final int mUnreadCount;
+    private final int mBatteryPercent;
+    private final boolean mCharging;
+    private final int mBatteryTemperature;
+    private final boolean mLaidOut;
+
+    /**
+     * @param version      快照版本，内容变化时递增
+     * @param minute       快照对应的分钟（自 1970 年起）
+     * @param hourOfDay    本地时 0 ~ 23
+     * @param minuteOfHour 本地分 0 ~ 59
+     * @param is24HourFormat 系统设置为 24 小时制
+     * @param date         已排版的日期
+     * @param battery      已排版的电量
+     * @param notice       已排版的未读通知，没有未读时为 null
+     * @param unreadCount  未读通知数量
+     * @param batteryPercent 电量百分比，未知时为 -1
+     * @param charging     是否在充电
+     * @param batteryTemperature 电池温度，单位 0.1 摄氏度
+     * @param laidOut      文字已按表盘尺寸排版
+     */
+    FrameModel(long version, long minute, int hourOfDay, int minuteOfHour,
+               boolean is24HourFormat, TextLabel date, TextLabel battery, TextLabel notice,
+               int unreadCount, int batteryPercent, boolean charging, int batteryTemperature,
+               boolean laidOut) {
+        mVersion = version;
+        mMinute = minute;
+        mHourOfDay = hourOfDay;
+        mMinuteOfHour = minuteOfHour;
+        m24HourFormat = is24HourFormat;
+        mDate = date;
+        mBattery = battery;
+        mNotice = notice;
+        mUnreadCount = unreadCount;
+        mBatteryPercent = batteryPercent;
+        mCharging = charging;
+        mBatteryTemperature = batteryTemperature;
+        mLaidOut = laidOut;
+    }
+
+    long getVersion() {
+        return mVersion;
+    }
+
+    long getMinute() {
+        return mMinute;
+    }
+
+    int getHourOfDay() {
+        return mHourOfDay;
+    }
+
+    int getMinuteOfHour() {
+        return mMinuteOfHour;
+    }
+
+    boolean is24HourFormat() {
+        return m24HourFormat;
+    }
+
+    /**
+     * @return 数字表盘显示的小时，按系统设置为 0 ~ 23 或 1 ~ 12
+     */
+    int getDisplayHour() {
+        return displayHour(mHourOfDay, m24HourFormat);
+    }
+
+    /**
+     * @param hourOfDay      本地时 0 ~ 23
+     * @param is24HourFormat 系统设置为 24 小时制
+     * @return 0 ~ 23，或与 {@code DateFormat} 的 h 相同的 1 ~ 12
+     */
+    static int displayHour(int hourOfDay, boolean is24HourFormat) {
+        if (is24HourFormat) {
+            return hourOfDay;
+        }
+        int hour = hourOfDay % 12;
+        return hour == 0 ? 12 : hour;
+    }
+
+    float getHoursRotation() {
+        return HandAngles.hours(mHourOfDay, mMinuteOfHour);
+    }
+
+    float getMinutesRotation() {
+        return HandAngles.minutes(mMinuteOfHour);
+    }
+
+    TextLabel getDate() {
+        return mDate;
+    }
+
+    TextLabel getBattery() {
+        return mBattery;
+    }
+
+    /**
+     * @return 未读通知，没有未读时为 null
+     */
+    TextLabel getNotice() {
+        return mNotice;
+    }
+
+    int getUnreadCount() {
+        return mUnreadCount;
+    }
+
+    int getBatteryPercent() {
+        return mBatteryPercent;
+    }
+
+    boolean isCharging() {
+        return mCharging;
+    }
+
+    /**
+     * @return 电池温度，单位 0.1 摄氏度
+     */
+    int getBatteryTemperature() {
+        return mBatteryTemperature;
+    }
+
+    /**
+     * @return 文字是否已排版，拿到表盘尺寸前生成的快照没有文字
+     */
+    boolean isLaidOut() {
+        return mLaidOut;
+    }
+}
@@ -0,0 +1,178 @@
+package com.android.mlt.myfaceapplication;
+
+/**
+ * 秒针刷新帧率调度。
+ * <p>
+ * 把帧对齐到墙钟的帧边界（每秒内均分），记录每帧实际绘制耗时。
+ * 连续超出预算或绘制质量降级时自动降低帧率，持续空闲时再逐级恢复到目标帧率。
+ * 只负责动态部分（秒针）的刷新节奏，缓存图层不受影响。
+ */
+final class FrameRateScheduler {
+
+    /**
+     * 可选帧率，1 为每秒跳动一次
+     */
+    static final int[] FRAME_RATES = {1, 5, 15, 30};
+
+    // 绘制耗时超过帧间隔的该比例视为超出预算
+    private static final float BUDGET_FRACTION = 0.5f;
+    // 连续超出预算多少帧后降级
+    private static final int OVERRUN_FRAMES_TO_STEP_DOWN = 3;
+    // 连续在预算一半以内多少毫秒后升级
+    private static final long STABLE_MS_TO_STEP_UP = 10_000;
+    // 实际帧率统计窗口
+    private static final long FPS_WINDOW_MS = 1000;
+
+    // 目标帧率对应的档位
+    private int mTargetLevel;
+    // 当前档位
+    private int mLevel;
+    private boolean mReduced;
+
+    private int mOverrunFrames;
+    private long mStableSinceMs = -1;
+
+    private long mWindowStartMs = -1;
+    private int mWindowFrames;
+    private float mAchievedFps;
+
+    FrameRateScheduler(int targetFps) {
+        setTargetFrameRate(targetFps);
+    }
+
+    /**
+     * 设置目标帧率，取不超过该值的最大可选帧率
+     */
+    void setTargetFrameRate(int fps) {
+        int level = 0;
+        for (int i = 0; i < FRAME_RATES.length; i++) {
+            if (FRAME_RATES[i] <= fps) {
+                level = i;
+            }
+        }
+        mTargetLevel = level;
+        mLevel = mReduced ? 0 : level;
+        resetBudget();
+    }
+
+    /**
+     * 绘制质量降级时固定为每秒一帧
+     *
+     * @return 当前帧率是否变化
+     */
+    boolean setReduced(boolean reduced) {
+        if (mReduced == reduced) {
+            return false;
+        }
+        mReduced = reduced;
+        int old = mLevel;
+        mLevel = reduced ? 0 : mTargetLevel;
+        resetBudget();
+        return old != mLevel;
+    }
+
+    /**
+     * @return 当前帧率
+     */
+    int getFrameRate() {
+        return FRAME_RATES[mLevel];
+    }
+
+    /**
+     * @return 目标帧率
+     */
+    int getTargetFrameRate() {
+        return FRAME_RATES[mTargetLevel];
+    }
+
+    /**
+     * @return 是否为平滑扫动模式
+     */
+    boolean isSweeping() {
+        return FRAME_RATES[mLevel] > 1;
+    }
+
+    /**
+     * 距离下一个墙钟帧边界的毫秒数
+     *
+     * @param nowMs 墙钟时间
+     */
+    long nextFrameDelay(long nowMs) {
+        int fps = FRAME_RATES[mLevel];
+        long msOfSecond = nowMs % 1000;
+        // 当前秒内的下一个帧边界，向上取整到毫秒
+        long nextFrame = ((msOfSecond * fps / 1000 + 1) * 1000 + fps - 1) / fps;
+        return Math.max(1, nextFrame - msOfSecond);
+    }
+
+    /**
+     * 记录一帧的绘制耗时
+     *
+     * @param nowMs      帧开始的墙钟时间
+     * @param drawNanos  绘制耗时
+     * @return 当前帧率是否变化
+     */
+    boolean onFrameDrawn(long nowMs, long drawNanos) {
+        countFrame(nowMs);
+
+        long budgetNanos = (long) (1_000_000_000L / FRAME_RATES[mLevel] * BUDGET_FRACTION);
+        if (drawNanos > budgetNanos) {
+            mStableSinceMs = -1;
+            if (++mOverrunFrames >= OVERRUN_FRAMES_TO_STEP_DOWN && mLevel > 0) {
+                mLevel--;
+                resetBudget();
+                return true;
+            }
+            return false;
+        }
+        mOverrunFrames = 0;
+        if (drawNanos > budgetNanos / 2 || mLevel >= mTargetLevel || mReduced) {
+            mStableSinceMs = -1;
+            return false;
+        }
+        if (mStableSinceMs < 0) {
+            mStableSinceMs = nowMs;
+        } else if (nowMs - mStableSinceMs >= STABLE_MS_TO_STEP_UP) {
+            mLevel++;
+            resetBudget();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return 最近统计窗口内的实际帧率
+     */
+    float getAchievedFps() {
+        return mAchievedFps;
+    }
+
+    /**
+     * 定时器停止后调用，丢弃未完成的统计
+     */
+    void reset() {
+        mWindowStartMs = -1;
+        mWindowFrames = 0;
+        resetBudget();
+    }
+
+    private void countFrame(long nowMs) {
+        if (mWindowStartMs < 0 || nowMs < mWindowStartMs) {
+            mWindowStartMs = nowMs;
+            mWindowFrames = 0;
+        }
+        mWindowFrames++;
+        long elapsed = nowMs - mWindowStartMs;
+        if (elapsed >= FPS_WINDOW_MS) {
+            // 窗口内第一帧作为起点，不计入
+            mAchievedFps = (mWindowFrames - 1) * 1000f / elapsed;
+            mWindowStartMs = nowMs;
+            mWindowFrames = 1;
+        }
+    }
+
+    private void resetBudget() {
+        mOverrunFrames = 0;
+        mStableSinceMs = -1;
+    }
+}
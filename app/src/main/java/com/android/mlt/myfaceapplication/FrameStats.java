@@ -0,0 +1,323 @@
+package com.android.mlt.myfaceapplication;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * 分阶段帧耗时统计。
+ * <p>
+ * 绘制线程通过 {@link #begin()} / {@link #end(int, long)} 记录各阶段耗时，
+ * 关闭时 {@link #begin()} 只读取一个字段并返回 0。统计结果通过
+ * {@code adb shell dumpsys activity service com.android.mlt.myfaceapplication/.MyWatchFace}
+ * 输出。除 {@link #begin()} 外只在主线程访问，dumpsys 的输出和重置也转到主线程执行。
+ */
+final class FrameStats {
+
+    static final int STAGE_BACKGROUND = 0;
+    static final int STAGE_DATE = 1;
+    static final int STAGE_BATTERY = 2;
+    static final int STAGE_UNREAD = 3;
+    static final int STAGE_HANDS = 4;
+    static final int STAGE_SECOND_HAND = 5;
+    static final int STAGE_COMPOSITE = 6;
+    static final int STAGE_COMPLICATIONS = 7;
+    static final int STAGE_AMBIENT = 8;
+    static final int STAGE_TOTAL = 9;
+    private static final int STAGE_COUNT = 10;
+
+    private static final String[] STAGE_NAMES = {
+            "background", "date", "battery", "unread", "hands", "second hand", "composite",
+            "complications", "ambient", "onDraw"
+    };
+
+    // 一个垂直同步周期
+    private static final long VSYNC_NANOS = 16_666_667L;
+
+    private final LatencyHistogram[] mStages = new LatencyHistogram[STAGE_COUNT];
+
+    private volatile boolean mEnabled;
+
+    private long mInvalidations;
+    private long mFrames;
+    private long mOverrunFrames;
+
+    // 重绘请求合并和秒针定时
+    private long mCoalescedRequests;
+    private long mMissedTicks;
+    private long mClockJumps;
+    private long mMaxTickLateMs;
+
+    // 通知回调次数和合并后交给后台线程的次数
+    private long mNotificationEvents;
+    private long mNotificationFlushes;
+
+    // 微光模式贴上预渲染画面和同步绘制的帧数
+    private long mAmbientPrerendered;
+    private long mAmbientSync;
+
+    // 各模式累计时间
+    private long mAmbientMs;
+    private long mInteractiveMs;
+    private long mModeSinceMs = -1;
+    private boolean mModeAmbient;
+
+    // 冷启动：创建引擎到首帧、到首个内容完整帧的时间，-1 表示尚未发生
+    private long mFirstFrameMs = -1;
+    private long mStartupMs = -1;
+    private boolean mStartupFromSnapshot;
+
+    // 绘制质量档位及切换次数
+    private int mQualityTier;
+    private long mQualityChanges;
+
+    // 秒针帧率
+    private int mFrameRate;
+    private float mAchievedFps;
+
+    FrameStats(boolean enabled) {
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            mStages[i] = new LatencyHistogram();
+        }
+        mEnabled = enabled;
+    }
+
+    boolean isEnabled() {
+        return mEnabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    /**
+     * @return 阶段开始时间，关闭时为 0
+     */
+    long begin() {
+        return mEnabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * 记录阶段耗时
+     *
+     * @param stage 阶段
+     * @param start {@link #begin()} 的返回值
+     */
+    void end(int stage, long start) {
+        if (start != 0) {
+            mStages[stage].record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 记录一帧
+     *
+     * @param start 帧开始时 {@link #begin()} 的返回值
+     */
+    void endFrame(long start) {
+        if (start == 0) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        mStages[STAGE_TOTAL].record(nanos);
+        mFrames++;
+        if (nanos > VSYNC_NANOS) {
+            mOverrunFrames++;
+        }
+    }
+
+    void countInvalidation() {
+        if (mEnabled) {
+            mInvalidations++;
+        }
+    }
+
+    /**
+     * 重绘请求被合并到已有请求
+     */
+    void countCoalescedRequest() {
+        if (mEnabled) {
+            mCoalescedRequests++;
+        }
+    }
+
+    /**
+     * 未读或通知数量回调
+     */
+    void countNotificationEvent() {
+        if (mEnabled) {
+            mNotificationEvents++;
+        }
+    }
+
+    /**
+     * 合并后的未读数量交给后台线程
+     */
+    void countNotificationFlush() {
+        if (mEnabled) {
+            mNotificationFlushes++;
+        }
+    }
+
+    /**
+     * 微光模式的一帧
+     *
+     * @param prerendered 是否贴上了预渲染的画面
+     */
+    void countAmbientFrame(boolean prerendered) {
+        if (mEnabled) {
+            if (prerendered) {
+                mAmbientPrerendered++;
+            } else {
+                mAmbientSync++;
+            }
+        }
+    }
+
+    long getCoalescedRequests() {
+        return mCoalescedRequests;
+    }
+
+    long getMissedTicks() {
+        return mMissedTicks;
+    }
+
+    long getClockJumps() {
+        return mClockJumps;
+    }
+
+    /**
+     * 系统时间被修改
+     */
+    void countClockJump() {
+        if (mEnabled) {
+            mClockJumps++;
+        }
+    }
+
+    /**
+     * 记录秒针定时的延迟
+     *
+     * @param lateMs 相对预定时刻的延迟
+     * @param missed 因此跳过的定时次数
+     */
+    void recordTickLate(long lateMs, long missed) {
+        if (mEnabled) {
+            mMissedTicks += missed;
+            mMaxTickLateMs = Math.max(mMaxTickLateMs, lateMs);
+        }
+    }
+
+    /**
+     * 记录冷启动后的首帧，不受开关和重置影响
+     *
+     * @param sinceCreateMs 距创建引擎的时间
+     */
+    void recordFirstFrame(long sinceCreateMs) {
+        if (mFirstFrameMs < 0) {
+            mFirstFrameMs = sinceCreateMs;
+        }
+    }
+
+    /**
+     * 记录冷启动后首个内容完整的帧，不受开关和重置影响
+     *
+     * @param sinceCreateMs 距创建引擎的时间
+     * @param fromSnapshot  之前的帧是否由持久化快照绘制
+     */
+    void recordStartup(long sinceCreateMs, boolean fromSnapshot) {
+        mStartupMs = sinceCreateMs;
+        mStartupFromSnapshot = fromSnapshot;
+    }
+
+    /**
+     * 绘制质量档位变化，不受开关影响
+     */
+    void setQualityTier(int tier) {
+        mQualityTier = tier;
+        mQualityChanges++;
+    }
+
+    void setFrameRate(int frameRate, float achievedFps) {
+        mFrameRate = frameRate;
+        mAchievedFps = achievedFps;
+    }
+
+    /**
+     * 记录可见性或微光模式变化，累计上一模式的时长
+     *
+     * @param visible 是否可见
+     * @param ambient 是否为微光模式
+     * @param nowMs   单调时钟毫秒
+     */
+    void onModeChanged(boolean visible, boolean ambient, long nowMs) {
+        accumulateModeTime(nowMs);
+        mModeSinceMs = visible ? nowMs : -1;
+        mModeAmbient = ambient;
+    }
+
+    void reset(long nowMs) {
+        for (LatencyHistogram stage : mStages) {
+            stage.reset();
+        }
+        mInvalidations = 0;
+        mFrames = 0;
+        mOverrunFrames = 0;
+        mCoalescedRequests = 0;
+        mMissedTicks = 0;
+        mClockJumps = 0;
+        mMaxTickLateMs = 0;
+        mNotificationEvents = 0;
+        mNotificationFlushes = 0;
+        mAmbientPrerendered = 0;
+        mAmbientSync = 0;
+        mQualityChanges = 0;
+        mAmbientMs = 0;
+        mInteractiveMs = 0;
+        if (mModeSinceMs >= 0) {
+            mModeSinceMs = nowMs;
+        }
+    }
+
+    void dump(PrintWriter writer, long nowMs) {
+        accumulateModeTime(nowMs);
+        if (mModeSinceMs >= 0) {
+            mModeSinceMs = nowMs;
+        }
+        writer.println("Frame stats (" + (mEnabled ? "enabled" : "disabled") + ")");
+        writer.println("  frames=" + mFrames + " overrun=" + mOverrunFrames
+                + " invalidations=" + mInvalidations + " coalesced=" + mCoalescedRequests);
+        writer.println("  missedTicks=" + mMissedTicks + " maxTickLateMs=" + mMaxTickLateMs
+                + " clockJumps=" + mClockJumps);
+        writer.println("  notificationEvents=" + mNotificationEvents
+                + " notificationFlushes=" + mNotificationFlushes);
+        writer.println("  ambientPrerendered=" + mAmbientPrerendered
+                + " ambientSync=" + mAmbientSync);
+        writer.println("  interactiveMs=" + mInteractiveMs + " ambientMs=" + mAmbientMs);
+        writer.println("  startup firstFrameMs=" + mFirstFrameMs + " completeFrameMs=" + mStartupMs
+                + " snapshot=" + mStartupFromSnapshot);
+        writer.println(String.format(Locale.US, "  secondHandFps=%d achievedFps=%.1f",
+                mFrameRate, mAchievedFps));
+        writer.println("  qualityTier=" + QualityGovernor.tierName(mQualityTier)
+                + " tierChanges=" + mQualityChanges);
+        writer.println(String.format(Locale.US, "  %-12s %8s %8s %8s %8s %8s %8s",
+                "stage(us)", "count", "mean", "p50", "p95", "p99", "max"));
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            LatencyHistogram stage = mStages[i];
+            writer.println(String.format(Locale.US, "  %-12s %8d %8d %8d %8d %8d %8d",
+                    STAGE_NAMES[i], stage.getCount(), stage.getMeanMicros(),
+                    stage.getPercentileMicros(50), stage.getPercentileMicros(95),
+                    stage.getPercentileMicros(99), stage.getMaxMicros()));
+        }
+    }
+
+    private void accumulateModeTime(long nowMs) {
+        if (mModeSinceMs < 0) {
+            return;
+        }
+        if (mModeAmbient) {
+            mAmbientMs += nowMs - mModeSinceMs;
+        } else {
+            mInteractiveMs += nowMs - mModeSinceMs;
+        }
+    }
+}
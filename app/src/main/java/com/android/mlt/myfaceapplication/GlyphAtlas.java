@@ -0,0 +1,122 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+
+/**
+ * 数字 0 ~ 9 的字形图集。
+ * <p>
+ * 所有数字按等宽单元格预先绘制到一张位图中，只在字号、字体或颜色变化时重建。
+ * 绘制时按单元格贴图，数字变化不影响排版，也不需要测量文字。
+ */
+final class GlyphAtlas {
+
+    private static final String DIGITS = "0123456789";
+
+    private Bitmap mBitmap;
+    private int mCellWidth;
+    private int mCellHeight;
+    // 数字可见部分的垂直中心，相对单元格顶部
+    private float mCenterY;
+
+    private final Rect mSrc = new Rect();
+    private final RectF mDst = new RectF();
+    private final Paint mBitmapPaint = new Paint();
+
+    // 生成图集时的画笔属性
+    private float mTextSize;
+    private Typeface mTypeface;
+    private int mColor;
+
+    /**
+     * 按需重建图集
+     *
+     * @param paint 数字画笔
+     */
+    void update(Paint paint) {
+        if (mBitmap != null && mTextSize == paint.getTextSize()
+                && mTypeface == paint.getTypeface() && mColor == paint.getColor()) {
+            return;
+        }
+        mTextSize = paint.getTextSize();
+        mTypeface = paint.getTypeface();
+        mColor = paint.getColor();
+
+        Paint glyphPaint = new Paint(paint);
+        glyphPaint.setTextAlign(Paint.Align.LEFT);
+        float maxAdvance = 0;
+        for (int i = 0; i < DIGITS.length(); i++) {
+            maxAdvance = Math.max(maxAdvance, glyphPaint.measureText(DIGITS, i, i + 1));
+        }
+        Paint.FontMetrics metrics = glyphPaint.getFontMetrics();
+        int baseline = (int) Math.ceil(-metrics.ascent);
+        int cellWidth = (int) Math.ceil(maxAdvance);
+        int cellHeight = baseline + (int) Math.ceil(metrics.descent);
+        Rect bounds = new Rect();
+        glyphPaint.getTextBounds(DIGITS, 0, DIGITS.length(), bounds);
+
+        recycle();
+        if (cellWidth <= 0 || cellHeight <= 0) {
+            return;
+        }
+        mCellWidth = cellWidth;
+        mCellHeight = cellHeight;
+        mCenterY = baseline + (bounds.top + bounds.bottom) / 2f;
+        mBitmap = Bitmap.createBitmap(cellWidth * DIGITS.length(), cellHeight,
+                Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(mBitmap);
+        for (int i = 0; i < DIGITS.length(); i++) {
+            // 数字在单元格内水平居中
+            float advance = glyphPaint.measureText(DIGITS, i, i + 1);
+            canvas.drawText(DIGITS, i, i + 1,
+                    i * cellWidth + (cellWidth - advance) / 2, baseline, glyphPaint);
+        }
+    }
+
+    int getCellWidth() {
+        return mCellWidth;
+    }
+
+    /**
+     * @return 数字可见部分的垂直中心，相对单元格顶部
+     */
+    float getCenterY() {
+        return mCenterY;
+    }
+
+    /**
+     * 贴图透明度，用于勿扰模式变暗
+     */
+    void setAlpha(int alpha) {
+        mBitmapPaint.setAlpha(alpha);
+    }
+
+    /**
+     * 绘制一个数字
+     *
+     * @param render 绘制命令
+     * @param digit  0 ~ 9
+     * @param left   单元格左边
+     * @param top    单元格顶部
+     */
+    void draw(RenderCommands render, int digit, float left, float top) {
+        if (mBitmap == null) {
+            return;
+        }
+        mSrc.set(digit * mCellWidth, 0, (digit + 1) * mCellWidth, mCellHeight);
+        mDst.set(left, top, left + mCellWidth, top + mCellHeight);
+        render.drawBitmap(mBitmap, mSrc, mDst, mBitmapPaint);
+    }
+
+    void recycle() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Paint;
+
+/**
+ * 一组交互模式指针和刻度画笔。
+ * <p>
+ * 每种质量档位和勿扰状态预先生成一组，切换时整体替换引用，
+ * 绘制过程中不会看到只改了一半的画笔。创建后不再修改。
+ */
+final class HandPaints {
+
+    private final Paint mHour;
+    private final Paint mMinute;
+    private final Paint mSecond;
+    private final Paint mTick;
+
+    HandPaints(Paint hour, Paint minute, Paint second, Paint tick) {
+        mHour = hour;
+        mMinute = minute;
+        mSecond = second;
+        mTick = tick;
+    }
+
+    Paint getHour() {
+        return mHour;
+    }
+
+    /**
+     * @return 分针画笔，也用于未读通知和复杂功能文字
+     */
+    Paint getMinute() {
+        return mMinute;
+    }
+
+    Paint getSecond() {
+        return mSecond;
+    }
+
+    /**
+     * @return 刻度和表心画笔
+     */
+    Paint getTick() {
+        return mTick;
+    }
+}
@@ -0,0 +1,145 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+
+/**
+ * 预先栅格化的指针位图。
+ * <p>
+ * 指针连同阴影只在尺寸或画笔变化时绘制一次，之后每帧用一次带旋转矩阵的贴图代替
+ * 带阴影的 {@code drawLine}，避免每帧重复计算模糊。位图中指针朝向 12 点，
+ * 旋转中心对应表盘中心；可选地在中心叠加表心圆，圆绕自身圆心旋转后不变。
+ */
+final class HandSprite {
+
+    private final int mPadding;
+
+    private Bitmap mBitmap;
+    // 表盘中心在位图中的坐标
+    private float mPivotX;
+    private float mPivotY;
+    private final Matrix mMatrix = new Matrix();
+    private final Paint mBitmapPaint = new Paint();
+
+    // 生成位图时的输入，任意一项变化都需重新绘制
+    private boolean mValid;
+    private int mHandColor;
+    private float mHandWidth;
+    private float mGap;
+    private float mLength;
+    private int mCircleColor;
+    private float mCircleRadius;
+
+    /**
+     * @param shadowRadius 画笔阴影半径，位图四周按此留出空白
+     */
+    HandSprite(float shadowRadius) {
+        // 模糊范围约为半径的 1.7 倍
+        mPadding = (int) Math.ceil(shadowRadius * 2) + 1;
+        mBitmapPaint.setFilterBitmap(true);
+        mBitmapPaint.setAntiAlias(true);
+    }
+
+    /**
+     * 按需重新生成位图
+     *
+     * @param handPaint    指针画笔
+     * @param gap          指针起点到表盘中心的距离
+     * @param length       指针终点到表盘中心的距离
+     * @param circlePaint  表心圆画笔，为 null 时不绘制表心
+     * @param circleRadius 表心圆半径
+     */
+    void update(Paint handPaint, float gap, float length, Paint circlePaint, float circleRadius) {
+        int circleColor = circlePaint != null ? circlePaint.getColor() : Color.TRANSPARENT;
+        if (mValid && mBitmap != null
+                && mHandColor == handPaint.getColor() && mHandWidth == handPaint.getStrokeWidth()
+                && mGap == gap && mLength == length
+                && mCircleColor == circleColor && mCircleRadius == circleRadius) {
+            return;
+        }
+        mValid = true;
+        mHandColor = handPaint.getColor();
+        mHandWidth = handPaint.getStrokeWidth();
+        mGap = gap;
+        mLength = length;
+        mCircleColor = circleColor;
+        mCircleRadius = circleRadius;
+
+        // 以表盘中心为原点计算范围，圆头端点向外延伸半个线宽
+        float halfStroke = mHandWidth / 2;
+        float halfWidth = halfStroke;
+        float bottom = -gap + halfStroke;
+        if (circlePaint != null) {
+            float circleExtent = circleRadius + circlePaint.getStrokeWidth() / 2;
+            halfWidth = Math.max(halfWidth, circleExtent);
+            bottom = Math.max(bottom, circleExtent);
+        }
+        int halfW = (int) Math.ceil(halfWidth) + mPadding;
+        int top = (int) Math.ceil(length + halfStroke) + mPadding;
+        int width = halfW * 2;
+        int height = top + (int) Math.ceil(bottom) + mPadding;
+        if (width <= 0 || height <= 0) {
+            recycle();
+            return;
+        }
+        if (mBitmap != null && mBitmap.getWidth() == width && mBitmap.getHeight() == height) {
+            mBitmap.eraseColor(Color.TRANSPARENT);
+        } else {
+            recycle();
+            mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mValid = true;
+        }
+        mPivotX = halfW;
+        mPivotY = top;
+
+        Canvas canvas = new Canvas(mBitmap);
+        canvas.translate(mPivotX, mPivotY);
+        canvas.drawLine(0, -gap, 0, -length, handPaint);
+        if (circlePaint != null) {
+            canvas.drawCircle(0, 0, circleRadius, circlePaint);
+        }
+    }
+
+    /**
+     * 丢弃位图内容，用于画笔阴影等无法比较的属性变化
+     */
+    void invalidate() {
+        mValid = false;
+    }
+
+    /**
+     * 绘制旋转后的指针
+     *
+     * @param render  绘制命令
+     * @param degrees 顺时针角度，0 为 12 点
+     * @param centerX 表盘中心
+     * @param centerY 表盘中心
+     */
+    void draw(RenderCommands render, float degrees, float centerX, float centerY) {
+        draw(render, degrees, centerX, centerY, null);
+    }
+
+    /**
+     * @param paint 贴图画笔，例如过渡动画中带透明度，为 null 时使用默认画笔
+     */
+    void draw(RenderCommands render, float degrees, float centerX, float centerY,
+              Paint paint) {
+        if (mBitmap == null) {
+            return;
+        }
+        mMatrix.setTranslate(centerX - mPivotX, centerY - mPivotY);
+        mMatrix.postRotate(degrees, centerX, centerY);
+        render.drawBitmap(mBitmap, mMatrix, paint != null ? paint : mBitmapPaint);
+    }
+
+    void recycle() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+        mValid = false;
+    }
+}
@@ -0,0 +1,109 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.RectF;
+
+/**
+ * 点击区域索引。
+ * <p>
+ * 按表盘几何划分日期、电量、未读通知三行文字，表心和复杂功能槽位。屏幕分成
+ * {@link #GRID}×{@link #GRID} 的网格，每格记录与之相交的区域位掩码；点击时按坐标取格，
+ * 只核对该格内的少数区域，常数时间得到结果。表盘尺寸变化时重建，只在主线程使用。
+ */
+final class HitRegions {
+
+    static final int REGION_NONE = -1;
+    static final int REGION_CENTER = 0;
+    static final int REGION_DATE = 1;
+    static final int REGION_BATTERY = 2;
+    static final int REGION_NOTICE = 3;
+    /**
+     * 复杂功能槽位 id 对应 REGION_COMPLICATION + id
+     */
+    static final int REGION_COMPLICATION = 4;
+
+    private static final int GRID = 8;
+
+    // 文字行的点击范围：基线以上和以下各为字号的倍数，宽度为半径的倍数
+    private static final float LINE_ABOVE = 1.2f;
+    private static final float LINE_BELOW = 0.5f;
+    private static final float LINE_HALF_WIDTH = 0.5f;
+    // 表心点击范围，半径的倍数
+    private static final float CENTER_HALF_SIZE = 0.2f;
+
+    private final int mWidth;
+    private final int mHeight;
+    private final RectF[] mBounds;
+    // 每格相交区域的位掩码，编号大的优先
+    private final int[] mCells = new int[GRID * GRID];
+
+    /**
+     * @param geometry 表盘几何
+     * @param textSize 文字行字号
+     */
+    HitRegions(FaceGeometry geometry, float textSize, int complicationCount) {
+        mWidth = geometry.getWidth();
+        mHeight = geometry.getHeight();
+        mBounds = new RectF[REGION_COMPLICATION + complicationCount];
+
+        float centerX = geometry.getCenterX();
+        float centerY = geometry.getCenterY();
+        float radius = geometry.getRadius();
+        float center = radius * CENTER_HALF_SIZE;
+        mBounds[REGION_CENTER] = new RectF(centerX - center, centerY - center,
+                centerX + center, centerY + center);
+        float lineHalfWidth = radius * LINE_HALF_WIDTH;
+        mBounds[REGION_DATE] = line(centerX, geometry.getDateBaseline(), lineHalfWidth, textSize);
+        mBounds[REGION_BATTERY] = line(centerX, geometry.getBatteryBaseline(), lineHalfWidth,
+                textSize);
+        mBounds[REGION_NOTICE] = line(centerX, geometry.getNoticeBaseline(), lineHalfWidth,
+                textSize);
+        for (int id = 0; id < complicationCount; id++) {
+            mBounds[REGION_COMPLICATION + id] = geometry.getComplicationBounds(id);
+        }
+
+        if (mWidth <= 0 || mHeight <= 0) {
+            return;
+        }
+        float cellWidth = mWidth / (float) GRID;
+        float cellHeight = mHeight / (float) GRID;
+        for (int region = 0; region < mBounds.length; region++) {
+            RectF bounds = mBounds[region];
+            int left = clamp((int) (bounds.left / cellWidth));
+            int right = clamp((int) (bounds.right / cellWidth));
+            int top = clamp((int) (bounds.top / cellHeight));
+            int bottom = clamp((int) (bounds.bottom / cellHeight));
+            for (int row = top; row <= bottom; row++) {
+                for (int column = left; column <= right; column++) {
+                    mCells[row * GRID + column] |= 1 << region;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 点击位置所在区域，没有时为 {@link #REGION_NONE}
+     */
+    int find(int x, int y) {
+        if (x < 0 || y < 0 || x >= mWidth || y >= mHeight) {
+            return REGION_NONE;
+        }
+        int mask = mCells[y * GRID / mHeight * GRID + x * GRID / mWidth];
+        while (mask != 0) {
+            int region = 31 - Integer.numberOfLeadingZeros(mask);
+            if (mBounds[region].contains(x, y)) {
+                return region;
+            }
+            mask &= ~(1 << region);
+        }
+        return REGION_NONE;
+    }
+
+    private static RectF line(float centerX, float baseline, float halfWidth, float textSize) {
+        return new RectF(centerX - halfWidth, baseline - textSize * LINE_ABOVE,
+                centerX + halfWidth, baseline + textSize * LINE_BELOW);
+    }
+
+    private static int clamp(int cell) {
+        return Math.max(0, Math.min(GRID - 1, cell));
+    }
+}
@@ -0,0 +1,102 @@
+package com.android.mlt.myfaceapplication;
+
+/**
+ * 固定大小的耗时直方图，记录时不分配内存。
+ * <p>
+ * 以微秒为单位：16 微秒以下每微秒一个桶，之后每个 2 的幂区间均分为 4 个桶，
+ * 相对误差不超过 25%。
+ */
+final class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (31 - 4) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final int[] mBuckets = new int[BUCKET_COUNT];
+    private long mCount;
+    private long mTotalMicros;
+    private long mMaxMicros;
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 纳秒
+     */
+    void record(long nanos) {
+        long micros = nanos / 1000;
+        if (micros < 0) {
+            micros = 0;
+        }
+        mBuckets[bucketOf(micros)]++;
+        mCount++;
+        mTotalMicros += micros;
+        if (micros > mMaxMicros) {
+            mMaxMicros = micros;
+        }
+    }
+
+    long getCount() {
+        return mCount;
+    }
+
+    long getMaxMicros() {
+        return mMaxMicros;
+    }
+
+    long getMeanMicros() {
+        return mCount == 0 ? 0 : mTotalMicros / mCount;
+    }
+
+    /**
+     * @param percentile 0 ~ 100
+     * @return 对应分位所在桶的上界，单位微秒
+     */
+    long getPercentileMicros(double percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(mCount * percentile / 100d);
+        if (target < 1) {
+            target = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mBuckets[i];
+            if (seen >= target) {
+                return Math.min(upperBoundOf(i), mMaxMicros);
+            }
+        }
+        return mMaxMicros;
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mBuckets[i] = 0;
+        }
+        mCount = 0;
+        mTotalMicros = 0;
+        mMaxMicros = 0;
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        if (micros > Integer.MAX_VALUE) {
+            return BUCKET_COUNT - 1;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+        int sub = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + sub) << (exponent - 2);
+        return lower + (1L << (exponent - 2)) - 1;
+    }
+}
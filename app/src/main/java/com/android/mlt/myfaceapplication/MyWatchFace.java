@@ -1,31 +1,46 @@
 package com.android.mlt.myfaceapplication;
 
-import android.content.BroadcastReceiver;
-import android.content.Context;
+import android.app.PendingIntent;
+import android.content.ActivityNotFoundException;
 import android.content.Intent;
-import android.content.IntentFilter;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Typeface;
-import android.os.BatteryManager;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
 import android.os.Message;
+import android.os.Process;
+import android.os.SystemClock;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.SystemProviders;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
+import android.util.Log;
 import android.view.SurfaceHolder;
-
+import android.view.WindowInsets;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.lang.ref.WeakReference;
-import java.util.Calendar;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Analog watch face with a ticking second hand. In ambient mode, the second hand isn't
+ * Analog watch face with a ticking or sweeping second hand. In ambient mode, the second hand isn't
  * shown. On devices with low-bit ambient mode, the hands are drawn without anti-aliasing in ambient
  * mode. The watch face is drawn with less contrast in mute mode.
  * <p>
@@ -38,22 +53,181 @@ import java.util.concurrent.TimeUnit;
  */
 public class MyWatchFace extends CanvasWatchFaceService {
 
-    /*
-     * Updates rate in milliseconds for interactive mode. We update once a second to advance the
-     * second hand.
-     */
-    private static final long INTERACTIVE_UPDATE_RATE_MS = TimeUnit.SECONDS.toMillis(1);
+    private static final String TAG = "MyWatchFace";
 
     /**
      * Handler message id for updating the time periodically in interactive mode.
      */
     private static final int MSG_UPDATE_TIME = 0;
+    /**
+     * 后台线程发布了新快照，回到主线程请求重绘
+     */
+    private static final int MSG_MODEL_PUBLISHED = 1;
+    /**
+     * 未读通知数量变化后的合并窗口结束
+     */
+    private static final int MSG_UNREAD_SETTLED = 2;
+
+    /**
+     * 未读通知合并窗口，窗口内的多次变化只重绘一次
+     */
+    private static final long UNREAD_DEBOUNCE_MS = 500;
+
+    private static final long MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * 绘制命令轨迹文件名、默认帧数和缓冲区大小
+     */
+    private static final String TRACE_FILE_NAME = "render.trace";
+    private static final int DEFAULT_TRACE_FRAMES = 60;
+    private static final int TRACE_BUFFER_BYTES = 256 * 1024;
+
+    /**
+     * 上一帧快照文件名
+     */
+    private static final String SNAPSHOT_FILE_NAME = "last_frame.snapshot";
+
+    /**
+     * 遥测环形文件名
+     */
+    private static final String TELEMETRY_FILE_NAME = "telemetry.bin";
+
+    /**
+     * dumpsys 等待主线程输出统计的最长时间
+     */
+    private static final long DUMP_TIMEOUT_MS = 1000;
+
+    /**
+     * 复杂功能槽位：表盘中心左右两侧
+     */
+    private static final int LEFT_COMPLICATION_ID = 0;
+    private static final int RIGHT_COMPLICATION_ID = 1;
+    private static final int[] COMPLICATION_IDS = {LEFT_COMPLICATION_ID, RIGHT_COMPLICATION_ID};
+
+    /**
+     * 重绘调度使用的系统时钟
+     */
+    private static final TickScheduler.Clock SYSTEM_CLOCK = new TickScheduler.Clock() {
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+
+        @Override
+        public long elapsedRealtime() {
+            return SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * 帧耗时统计，调试版本默认开启
+     */
+    private final FrameStats mFrameStats = new FrameStats(BuildConfig.DEBUG);
+
+    /**
+     * 主线程，dumpsys 在 binder 线程调用，统计的读写都转到这里
+     */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * 待记录的绘制命令轨迹帧数，由 dumpsys 设置，绘制线程读取后清零
+     */
+    private volatile int mTraceFramesRequested;
+
+    /**
+     * 最近一次创建引擎的时间，用于冷启动计时
+     */
+    private long mEngineCreatedAt;
 
     @Override
     public Engine onCreateEngine() {
+        mEngineCreatedAt = SystemClock.elapsedRealtime();
         return new Engine();
     }
 
+    /**
+     * 输出帧耗时统计。
+     * <p>
+     * {@code adb shell dumpsys activity service com.android.mlt.myfaceapplication/.MyWatchFace}
+     * 后可追加参数 {@code stats-on}、{@code stats-off} 或 {@code stats-reset}；
+     * {@code trace [帧数]} 记录之后若干帧的绘制命令到 {@value #TRACE_FILE_NAME}。
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(fd, writer, args);
+        final List<String> statsCommands = new ArrayList<>();
+        if (args != null) {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if ("trace".equals(arg)) {
+                    int frames = DEFAULT_TRACE_FRAMES;
+                    if (i + 1 < args.length) {
+                        try {
+                            frames = Integer.parseInt(args[i + 1]);
+                            i++;
+                        } catch (NumberFormatException ignored) {
+                            // 使用默认帧数
+                        }
+                    }
+                    mTraceFramesRequested = frames;
+                    writer.println("Recording " + frames + " frames to " + TRACE_FILE_NAME);
+                } else if ("stats-on".equals(arg) || "stats-off".equals(arg)
+                        || "stats-reset".equals(arg)) {
+                    statsCommands.add(arg);
+                }
+            }
+        }
+        writer.print(dumpFrameStats(statsCommands));
+    }
+
+    /**
+     * 在主线程执行统计命令并输出，绘制线程写统计时不会读到一半的数据
+     *
+     * @return 统计输出，主线程忙时为提示文字
+     */
+    private String dumpFrameStats(final List<String> commands) {
+        final StringWriter out = new StringWriter();
+        final CountDownLatch done = new CountDownLatch(1);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                long now = SystemClock.elapsedRealtime();
+                for (String command : commands) {
+                    if ("stats-on".equals(command)) {
+                        mFrameStats.setEnabled(true);
+                    } else if ("stats-off".equals(command)) {
+                        mFrameStats.setEnabled(false);
+                    } else {
+                        mFrameStats.reset(now);
+                    }
+                }
+                PrintWriter writer = new PrintWriter(out);
+                mFrameStats.dump(writer, now);
+                writer.flush();
+                done.countDown();
+            }
+        };
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            task.run();
+            return out.toString();
+        }
+        mMainHandler.post(task);
+        try {
+            if (!done.await(DUMP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                return "Frame stats unavailable: main thread busy\n";
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Frame stats unavailable: interrupted\n";
+        }
+        return out.toString();
+    }
+
     private static class EngineHandler extends Handler {
         private final WeakReference<MyWatchFace.Engine> mWeakReference;
 
@@ -67,95 +241,127 @@ public class MyWatchFace extends CanvasWatchFaceService {
             if (engine != null) {
                 if (msg.what == MSG_UPDATE_TIME) {
                     engine.handleUpdateTimeMessage();
+                } else if (msg.what == MSG_MODEL_PUBLISHED) {
+                    // 微光模式下预渲染的画面已显示相同内容时不再重绘
+                    if (!engine.mAmbient
+                            || !engine.mPrerenderer.isShown(engine.mWorker.getModel())) {
+                        engine.mTicks.requestFrame(msg.arg1);
+                    }
+                    engine.updateTelemetry();
+                } else if (msg.what == MSG_UNREAD_SETTLED) {
+                    engine.flushUnreadCount();
                 }
             }
         }
     }
 
-    private class Engine extends CanvasWatchFaceService.Engine {
+    private class Engine extends CanvasWatchFaceService.Engine
+            implements EngineWorker.Listener, ComplicationDecoder.Callback, TickScheduler.Host {
         private static final float HOUR_STROKE_WIDTH = 5f;
         private static final float MINUTE_STROKE_WIDTH = 3f;
         private static final float SECOND_TICK_STROKE_WIDTH = 2f;
 
         private static final float CENTER_GAP_AND_CIRCLE_RADIUS = 4f;
+        // 数字模式秒数圆环宽度
+        private static final float RING_STROKE_WIDTH = 10f;
+        // 数字模式时、分之间的间隔的一半
+        private static final float DIGIT_GAP = 10f;
 
         private static final int SHADOW_RADIUS = 4;
-        /* Handler to update the time once a second in interactive mode. */
+        /* Handler to update the time at the second hand frame rate in interactive mode. */
         private final Handler mUpdateTimeHandler = new EngineHandler(this);
-        private Calendar mCalendar;
-        private final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                mCalendar.setTimeZone(TimeZone.getDefault());
-                invalidate();
-            }
-        };
-        private boolean mRegisteredTimeZoneReceiver = false;
+        // 后台线程：广播、日期和文字排版，生成每分钟的内容快照
+        private EngineWorker mWorker;
+        // 文件读写线程：快照和遥测写入，不推迟后台线程的快照生成和微光预渲染
+        private HandlerThread mIoThread;
+        // 最近一次回调的未读通知数量，以及已告知后台线程的数量
+        private int mUnreadCount;
+        private int mReportedUnreadCount = -1;
         private boolean mMuteMode;
-        private float mCenterX;
-        private float mCenterY;
-        private float mSecondHandLength;
-        private float sMinuteHandLength;
-        private float sHourHandLength;
+        // 表盘几何，尺寸或屏幕形状变化时整体替换
+        private FaceGeometry mGeometry;
+        // 点击区域，随表盘几何重建
+        private HitRegions mHitRegions;
+        // 日期行样式，点击日期行切换
+        private int mDateStyle;
+        private boolean mRoundScreen = true;
+        private int mBottomInset;
         /* Colors for all hands (hour, minute, seconds, ticks) based on photo loaded. */
         private int mWatchHandColor;
         private int mWatchTickColor;
         private int mWatchHandHighlightColor;
         private int mWatchHandShadowColor;
         private Paint mDatePaint;
-        private Paint mHourPaint;
-        private Paint mMinutePaint;
-        private Paint mSecondPaint;
-        private Paint mTickAndCirclePaint;
+        // 当前使用的指针和刻度画笔，按质量档位和勿扰状态整体替换
+        private HandPaints mHands;
+        private final HandPaints[][] mPaintSets = new HandPaints[QualityGovernor.TIER_COUNT][2];
+        // 绘制质量档位
+        private final QualityGovernor mGovernor = new QualityGovernor();
+        // 微光模式回到交互模式的过渡
+        private final TransitionAnimator mTransition = new TransitionAnimator();
         private Paint mBackgroundPaint;
         private boolean mAmbient;
+        // 屏幕属性
+        private boolean mLowBitAmbient;
+        private boolean mBurnInProtection;
+        // 微光模式渲染
+        private AmbientRenderer mAmbientRenderer;
+        // 后台线程预渲染的下一分钟微光画面
+        private AmbientPrerenderer mPrerenderer;
+        // 带阴影的指针位图，秒针位图包含表心
+        private final HandSprite mHourSprite = new HandSprite(SHADOW_RADIUS);
+        private final HandSprite mMinuteSprite = new HandSprite(SHADOW_RADIUS);
+        private final HandSprite mSecondSprite = new HandSprite(SHADOW_RADIUS);
         private int dateTextSize = 26;
-        BatteryManager manager;
-
-
-        //        float innerTickRadius;
-//        float outerTickRadius;
-        // 长刻度停止位置
-        int LONG_TICK_STOP = 12;
-        // 短刻度开始位置
-        int SHORT_TICK_START = 14;
-        // 短刻度停止位置
-        int SHORT_TICK_STOP = 16;
-
-        // 指针模式变量 s
-        // 做为对比日期
-        int oldYear;
-        int oldMonth;
-        int oldDay;
-        // 此刻日期
-        int year;
-        int month;
-        int day;
-        // 此刻周几
-        int dayWeek;
-        // 日期文字宽度
-        int dataTextWidth;
-        // 日期文字高度
-        int dataTextHeight;
-        // 日期文字
-        String dataText;
-        // 日期星期拼接
-        StringBuilder timeSb = new StringBuilder();
-        // 电量拼接
-        StringBuilder electric = new StringBuilder();
-        // 电量
-        String electricStr;
-        // 未读通知拼接
-        StringBuilder notice = new StringBuilder();
-        // 未读通知
-        String noticeStr;
-        // 通知条数
-        int noticeNumber = 0;
-        // 刻度个数
-        int TICK_SIZE = 60;
-        // 绘制刻度时每次旋转角度
-        float tickRot = 360f / TICK_SIZE;
-        // 指针模式变量 e
+
+
+        // 数字模式变量 s
+        // 是否为数字表盘，点击切换
+        private boolean mDigital;
+        // 秒数圆环区域，几何变化时计算
+        private final RectF mArcRect = new RectF();
+        // 秒数圆环画笔
+        private Paint mRingPaint;
+        // 时、分数字画笔和字形图集
+        private Paint mDigitPaint;
+        private final GlyphAtlas mDigitAtlas = new GlyphAtlas();
+        // 数字模式秒数圆环
+        private final RingSprite mRingSprite = new RingSprite();
+        // 数字模式变量 e
+
+        // 静态表盘图层：背景和刻度，仅在尺寸或模式变化时重绘
+        private final FrameLayer mDialLayer = new FrameLayer();
+        // 分钟图层：日期、电量、未读通知、时针和分针，内容快照变化时重绘
+        private final FrameLayer mMinuteLayer = new FrameLayer();
+
+        // 复杂功能：最新数据、槽位区域和后台解码结果
+        private final ComplicationData[] mComplicationData =
+                new ComplicationData[COMPLICATION_IDS.length];
+        private final ComplicationLayout[] mComplications =
+                new ComplicationLayout[COMPLICATION_IDS.length];
+        private ComplicationDecoder mComplicationDecoder;
+
+        // 秒针刷新帧率调度
+        private FrameRateScheduler mFrameScheduler;
+        // 重绘请求合并和秒针定时，所有重绘都经过这里
+        private TickScheduler mTicks;
+
+        // 绘制命令输出，记录轨迹时替换为 mRecorder
+        private final CanvasRenderCommands mCanvasCommands = new CanvasRenderCommands();
+        private RenderCommands mRender = mCanvasCommands;
+        private RecordingRenderCommands mRecorder;
+
+        // 持久化的静态表盘和日期，冷启动时在文字排版完成前贴图
+        private SnapshotStore mSnapshotStore;
+        // 快照的日期和冷启动时实时指针使用的时间，只在绘制线程访问
+        private final WatchTime mSnapshotTime = new WatchTime(TimeZone.getDefault());
+        // 长期的绘制和耗电统计
+        private TelemetryLog mTelemetry;
+        // 尚未绘制内容完整的帧
+        private boolean mStartupPending = true;
+        private boolean mStartupFromSnapshot;
+        // 已保存快照对应的内容版本
+        private long mSavedSnapshotVersion = FrameLayer.INVALID_KEY;
 
         @Override
         public void onCreate(SurfaceHolder holder) {
@@ -168,14 +374,48 @@ public class MyWatchFace extends CanvasWatchFaceService {
                     // 未读通知数量在状态栏显示
                     .setShowUnreadCountIndicator(true)
                     .build());
-            // 获取时间对象，每次绘制图像
-            mCalendar = Calendar.getInstance();
-            // 管理
-            manager = (BatteryManager) getSystemService(BATTERY_SERVICE);
+            // 秒针帧率，大于 1 时为平滑扫动
+            mFrameScheduler = new FrameRateScheduler(
+                    getResources().getInteger(R.integer.second_hand_frame_rate));
+            mTicks = new TickScheduler(SYSTEM_CLOCK, this, mFrameScheduler, mFrameStats);
             // 初始化背景数据
             initializeBackground();
             // 初始化表盘数据
             initializeWatchFace();
+            // 拿到表盘尺寸前的空几何
+            mGeometry = new FaceGeometry(0, 0, mRoundScreen, mBottomInset, dateTextSize,
+                    COMPLICATION_IDS.length);
+            mHitRegions = new HitRegions(mGeometry, dateTextSize, COMPLICATION_IDS.length);
+            mAmbientRenderer = new AmbientRenderer(HOUR_STROKE_WIDTH, MINUTE_STROKE_WIDTH,
+                    CENTER_GAP_AND_CIRCLE_RADIUS, mDatePaint, mHands.getMinute());
+            // 后台线程，测量使用与绘制相同的字号
+            mWorker = new EngineWorker(MyWatchFace.this, mDatePaint, mHands.getMinute(), this);
+            mPrerenderer = new AmbientPrerenderer(new AmbientRenderer(HOUR_STROKE_WIDTH,
+                    MINUTE_STROKE_WIDTH, CENTER_GAP_AND_CIRCLE_RADIUS, mDatePaint,
+                    mHands.getMinute()), mWorker.getLooper());
+            mWorker.setPrerenderer(mPrerenderer);
+            mIoThread = new HandlerThread("engine-io", Process.THREAD_PRIORITY_BACKGROUND);
+            mIoThread.start();
+            mSnapshotStore = new SnapshotStore(new File(getFilesDir(), SNAPSHOT_FILE_NAME),
+                    BuildConfig.VERSION_CODE, mIoThread.getLooper());
+            // 在单独的线程读取，不推迟后台线程的几何和文字排版
+            mSnapshotStore.load();
+            mTelemetry = new TelemetryLog(new File(getFilesDir(), TELEMETRY_FILE_NAME),
+                    mIoThread.getLooper());
+            mTelemetry.start(System.currentTimeMillis(), SystemClock.elapsedRealtime());
+            // 初始化复杂功能
+            initializeComplications();
+        }
+
+        private void initializeComplications() {
+            // 复杂功能文字与未读通知使用同一画笔
+            mComplicationDecoder = new ComplicationDecoder(MyWatchFace.this,
+                    COMPLICATION_IDS.length, mHands.getMinute(), this);
+            setDefaultSystemComplicationProvider(LEFT_COMPLICATION_ID,
+                    SystemProviders.STEP_COUNT, ComplicationData.TYPE_SHORT_TEXT);
+            setDefaultSystemComplicationProvider(RIGHT_COMPLICATION_ID,
+                    SystemProviders.NEXT_EVENT, ComplicationData.TYPE_SHORT_TEXT);
+            setActiveComplications(COMPLICATION_IDS);
         }
 
         private void initializeBackground() {
@@ -198,112 +438,280 @@ public class MyWatchFace extends CanvasWatchFaceService {
             mDatePaint.setStrokeCap(Paint.Cap.ROUND);
             mDatePaint.setTextSize(dateTextSize);
 
-            mHourPaint = new Paint();
-            mHourPaint.setColor(mWatchHandHighlightColor);
-            mHourPaint.setStrokeWidth(HOUR_STROKE_WIDTH);
-            mHourPaint.setAntiAlias(true);
-            mHourPaint.setStrokeCap(Paint.Cap.ROUND);
-            mHourPaint.setTextSize(dateTextSize - 2);
-            // 设置阴影
-//            mHourPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-
-            mMinutePaint = new Paint();
-            mMinutePaint.setColor(mWatchHandHighlightColor);
-            mMinutePaint.setStrokeWidth(MINUTE_STROKE_WIDTH);
-            mMinutePaint.setAntiAlias(true);
-            mMinutePaint.setStrokeCap(Paint.Cap.ROUND);
-            mMinutePaint.setTextSize(dateTextSize - 4);
-            // 设置阴影
-//            mMinutePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-
-            mSecondPaint = new Paint();
-            mSecondPaint.setColor(mWatchHandColor);
-            mSecondPaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
-            mSecondPaint.setAntiAlias(true);
-            mSecondPaint.setStrokeCap(Paint.Cap.ROUND);
-            // 设置阴影
-//            mSecondPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-
-            mTickAndCirclePaint = new Paint();
-            mTickAndCirclePaint.setColor(mWatchTickColor);
-            mTickAndCirclePaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
-            mTickAndCirclePaint.setAntiAlias(true);
-            mTickAndCirclePaint.setStyle(Paint.Style.STROKE);
-            // 设置阴影
-            mTickAndCirclePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+            // 各质量档位和勿扰状态的画笔预先生成
+            for (int tier = 0; tier < QualityGovernor.TIER_COUNT; tier++) {
+                mPaintSets[tier][0] = createHandPaints(tier, false);
+                mPaintSets[tier][1] = createHandPaints(tier, true);
+            }
+            mHands = mPaintSets[QualityGovernor.TIER_FULL][0];
+
+            mRingPaint = new Paint();
+            mRingPaint.setColor(mWatchHandColor);
+            mRingPaint.setStrokeWidth(RING_STROKE_WIDTH);
+            mRingPaint.setAntiAlias(true);
+            mRingPaint.setStyle(Paint.Style.STROKE);
+
+            mDigitPaint = new Paint();
+            mDigitPaint.setColor(mWatchHandHighlightColor);
+            mDigitPaint.setAntiAlias(true);
+            mDigitPaint.setTypeface(Typeface.SANS_SERIF);
+        }
+
+        /**
+         * 生成一组指针和刻度画笔
+         *
+         * @param tier 质量档位，完整档位带阴影；各档位都抗锯齿，圆形屏幕上的指针不出现锯齿
+         * @param mute 勿扰模式，降低透明度
+         */
+        private HandPaints createHandPaints(int tier, boolean mute) {
+            boolean shadow = tier == QualityGovernor.TIER_FULL;
+
+            Paint hour = new Paint();
+            hour.setColor(mWatchHandHighlightColor);
+            hour.setStrokeWidth(HOUR_STROKE_WIDTH);
+            hour.setStrokeCap(Paint.Cap.ROUND);
+            hour.setTextSize(dateTextSize - 2);
+
+            Paint minute = new Paint();
+            minute.setColor(mWatchHandHighlightColor);
+            minute.setStrokeWidth(MINUTE_STROKE_WIDTH);
+            minute.setStrokeCap(Paint.Cap.ROUND);
+            minute.setTextSize(dateTextSize - 4);
+
+            Paint second = new Paint();
+            second.setColor(mWatchHandColor);
+            second.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
+            second.setStrokeCap(Paint.Cap.ROUND);
+
+            Paint tick = new Paint();
+            tick.setColor(mWatchTickColor);
+            tick.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
+            tick.setStyle(Paint.Style.STROKE);
+
+            Paint[] paints = {hour, minute, second, tick};
+            for (Paint paint : paints) {
+                paint.setAntiAlias(true);
+                if (shadow) {
+                    paint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+                }
+            }
+            if (mute) {
+                /* Dim display in mute mode. */
+                hour.setAlpha(100);
+                minute.setAlpha(100);
+                second.setAlpha(80);
+            }
+            return new HandPaints(hour, minute, second, tick);
+        }
+
+        /**
+         * 按当前质量档位和勿扰状态切换画笔，依赖画笔的图层和指针位图随之重绘
+         */
+        private void applyHandPaints() {
+            HandPaints hands = mPaintSets[mGovernor.getTier()][mMuteMode ? 1 : 0];
+            if (hands == mHands) {
+                return;
+            }
+            mHands = hands;
+            mDialLayer.invalidate();
+            mMinuteLayer.invalidate();
+            mHourSprite.invalidate();
+            mMinuteSprite.invalidate();
+            mSecondSprite.invalidate();
+            if (mRecorder != null) {
+                registerTracePaints(mRecorder);
+            }
         }
 
         @Override
         public void onDestroy() {
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mTicks.setRunning(false);
+            mUpdateTimeHandler.removeMessages(MSG_MODEL_PUBLISHED);
+            mUpdateTimeHandler.removeMessages(MSG_UNREAD_SETTLED);
+            saveSnapshot();
+            // 写入未满的区间，须在文件读写线程退出前
+            mTelemetry.close(mWorker.getModel(), System.currentTimeMillis(),
+                    SystemClock.elapsedRealtime());
+            mDialLayer.recycle();
+            mMinuteLayer.recycle();
+            mAmbientRenderer.recycle();
+            mPrerenderer.recycle();
+            mHourSprite.recycle();
+            mMinuteSprite.recycle();
+            mSecondSprite.recycle();
+            mDigitAtlas.recycle();
+            mRingSprite.recycle();
+            mComplicationDecoder.quit();
+            mWorker.quit();
+            // 处理完已提交的快照和遥测写入后退出
+            mIoThread.quitSafely();
             super.onDestroy();
         }
 
         @Override
         public void onPropertiesChanged(Bundle properties) {
             super.onPropertiesChanged(properties);
+            mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
+            mBurnInProtection = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
+            mAmbientRenderer.setProperties(mLowBitAmbient, mBurnInProtection);
+            mPrerenderer.setProperties(mLowBitAmbient, mBurnInProtection);
         }
 
         @Override
         public void onTimeTick() {
             super.onTimeTick();
-            invalidate();
+            // 微光模式期间积累的未读变化随新分钟的快照一起更新
+            flushUnreadCount();
+            if (mAmbient) {
+                // 预渲染的画面仍然有效时立即贴图，不等后台线程发布新快照
+                FrameModel model = mWorker.getModel();
+                if (model.getUnreadCount() == mUnreadCount && mPrerenderer.isReady(
+                        System.currentTimeMillis() / MINUTE_MS, model)) {
+                    mTicks.requestFrame(TickScheduler.SOURCE_TIME_TICK);
+                }
+            }
+            updateTelemetry();
+            // 后台线程生成新分钟的快照后通知重绘
+            mWorker.requestUpdate();
+            // 随时间变化或已过期的复杂功能重新解码
+            long now = System.currentTimeMillis();
+            for (int id : COMPLICATION_IDS) {
+                ComplicationData data = mComplicationData[id];
+                ComplicationLayout layout = mComplications[id];
+                if (data != null && ((layout != null && layout.isTimeDependent())
+                        || (layout != null) != data.isActive(now))) {
+                    mComplicationDecoder.decode(id, data, mGeometry.getComplicationBounds(id));
+                }
+            }
+        }
+
+        @Override
+        public void onUnreadCountChanged(int count) {
+            super.onUnreadCountChanged(count);
+            onNotificationsChanged(count);
         }
 
         /**
-         * 更改微光模式
-         *
-         * @param inAmbientMode 是否是微光模式
+         * 通知总数变化时未读数量不一定变化，以未读数量为准
          */
         @Override
-        public void onAmbientModeChanged(boolean inAmbientMode) {
-            super.onAmbientModeChanged(inAmbientMode);
-            mAmbient = inAmbientMode;
+        public void onNotificationCountChanged(int count) {
+            super.onNotificationCountChanged(count);
+            onNotificationsChanged(getUnreadCount());
+        }
 
-            updateWatchHandStyle();
+        /**
+         * 记录最新的未读数量。交互模式在合并窗口结束时统一交给后台线程，
+         * 微光模式等到下一次 {@link #onTimeTick()}
+         */
+        private void onNotificationsChanged(int unread) {
+            mFrameStats.countNotificationEvent();
+            mUnreadCount = unread;
+            if (unread == mReportedUnreadCount) {
+                // 窗口内变化后又恢复，无需更新
+                mUpdateTimeHandler.removeMessages(MSG_UNREAD_SETTLED);
+                return;
+            }
+            // 窗口从第一次变化开始计算，持续的通知不会一直推迟更新
+            if (!mAmbient && !mUpdateTimeHandler.hasMessages(MSG_UNREAD_SETTLED)) {
+                mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UNREAD_SETTLED,
+                        UNREAD_DEBOUNCE_MS);
+            }
+        }
 
-            /* Check and trigger whether or not timer should be running (only in active mode). */
-            updateTimer();
+        /**
+         * 未读数量交给后台线程重新排版，发布快照后重绘一次
+         */
+        private void flushUnreadCount() {
+            mUpdateTimeHandler.removeMessages(MSG_UNREAD_SETTLED);
+            if (mUnreadCount != mReportedUnreadCount) {
+                mReportedUnreadCount = mUnreadCount;
+                mWorker.setUnreadCount(mUnreadCount);
+                mFrameStats.countNotificationFlush();
+            }
         }
 
         /**
-         * 更新数据
+         * 复杂功能数据更新，交给后台线程解码，不阻塞绘制
          */
-        private void updateWatchHandStyle() {
-            if (mAmbient) {
-                // 微光模式
-                mHourPaint.setColor(mWatchHandHighlightColor);
-                mMinutePaint.setColor(mWatchHandHighlightColor);
-                mSecondPaint.setColor(mWatchHandColor);
-                mTickAndCirclePaint.setColor(mWatchTickColor);
-
-                mHourPaint.setAntiAlias(false);
-                mMinutePaint.setAntiAlias(false);
-                mSecondPaint.setAntiAlias(false);
-                mTickAndCirclePaint.setAntiAlias(false);
-
-                mHourPaint.clearShadowLayer();
-                mMinutePaint.clearShadowLayer();
-                mSecondPaint.clearShadowLayer();
-                mTickAndCirclePaint.clearShadowLayer();
+        @Override
+        public void onComplicationDataUpdate(int complicationId, ComplicationData data) {
+            super.onComplicationDataUpdate(complicationId, data);
+            mComplicationData[complicationId] = data;
+            mComplicationDecoder.decode(complicationId, data,
+                    mGeometry.getComplicationBounds(complicationId));
+        }
 
-            } else {
-                mHourPaint.setColor(mWatchHandHighlightColor);
-                mMinutePaint.setColor(mWatchHandHighlightColor);
-                mSecondPaint.setColor(mWatchHandColor);
-                mTickAndCirclePaint.setColor(mWatchTickColor);
+        /**
+         * 后台解码完成，在主线程替换绘制对象
+         */
+        @Override
+        public void onComplicationDecoded(int id, ComplicationLayout layout) {
+            mComplications[id] = layout;
+            mMinuteLayer.invalidate();
+            if (!mAmbient) {
+                mTicks.requestFrame(TickScheduler.SOURCE_COMPLICATION);
+            }
+        }
+
+        /**
+         * 新快照发布，在后台线程调用，转到主线程合并到下一帧
+         */
+        @Override
+        public void onFrameModelPublished(FrameModel model, int source) {
+            mUpdateTimeHandler.obtainMessage(MSG_MODEL_PUBLISHED, source, 0).sendToTarget();
+        }
+
+        @Override
+        public void invalidate() {
+            mFrameStats.countInvalidation();
+            super.invalidate();
+        }
+
+        @Override
+        public void postFrame() {
+            invalidate();
+        }
 
-                mHourPaint.setAntiAlias(true);
-                mMinutePaint.setAntiAlias(true);
-                mSecondPaint.setAntiAlias(true);
-                mTickAndCirclePaint.setAntiAlias(true);
+        @Override
+        public void scheduleTick(long uptimeMillis) {
+            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mUpdateTimeHandler.sendEmptyMessageAtTime(MSG_UPDATE_TIME, uptimeMillis);
+        }
+
+        @Override
+        public void cancelTick() {
+            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+        }
 
-                // 阴影
-                mHourPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mMinutePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mSecondPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mTickAndCirclePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+        /**
+         * 更改微光模式
+         *
+         * @param inAmbientMode 是否是微光模式
+         */
+        @Override
+        public void onAmbientModeChanged(boolean inAmbientMode) {
+            super.onAmbientModeChanged(inAmbientMode);
+            mTicks.resetPendingFrame();
+            mAmbient = inAmbientMode;
+            mWorker.setAmbient(mAmbient);
+            if (mAmbient) {
+                // 系统强制进入微光模式，过渡立即取消
+                mTransition.cancel();
+            } else if (isVisible() && mGovernor.getTier() != QualityGovernor.TIER_MINIMAL) {
+                mTransition.start(SystemClock.elapsedRealtime());
+                mTicks.requestFrame(TickScheduler.SOURCE_TRANSITION);
             }
+            if (!mAmbient) {
+                // 回到交互模式本来就要重绘，微光期间的未读变化立即更新
+                flushUnreadCount();
+            }
+            mFrameStats.onModeChanged(isVisible(), mAmbient, SystemClock.elapsedRealtime());
+            updateTelemetryMode();
+
+            // 微光模式由 mAmbientRenderer 使用自己的画笔绘制，交互模式的画笔和缓存图层保持不变
+            /* Check and trigger whether or not timer should be running (only in active mode). */
+            updateTimer();
         }
 
         @Override
@@ -314,316 +722,593 @@ public class MyWatchFace extends CanvasWatchFaceService {
             /* Dim display in mute mode. */
             if (mMuteMode != inMuteMode) {
                 mMuteMode = inMuteMode;
-                mHourPaint.setAlpha(inMuteMode ? 100 : 255);
-                mMinutePaint.setAlpha(inMuteMode ? 100 : 255);
-                mSecondPaint.setAlpha(inMuteMode ? 80 : 255);
-                invalidate();
+                applyHandPaints();
+                mRingPaint.setAlpha(inMuteMode ? 80 : 255);
+                mDigitAtlas.setAlpha(inMuteMode ? 100 : 255);
+                updateTelemetryMode();
+                mMinuteLayer.invalidate();
+                mTicks.requestFrame(TickScheduler.SOURCE_INTERRUPTION);
             }
         }
 
+        /**
+         * 屏幕形状和底部缺口，通常在 {@link #onSurfaceChanged} 之前回调
+         */
+        @Override
+        public void onApplyWindowInsets(WindowInsets insets) {
+            super.onApplyWindowInsets(insets);
+            mRoundScreen = insets.isRound();
+            mBottomInset = insets.getSystemWindowInsetBottom();
+            updateGeometry(mGeometry.getWidth(), mGeometry.getHeight());
+        }
+
         @Override
         public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
             super.onSurfaceChanged(holder, format, width, height);
+            mTicks.resetPendingFrame();
+            updateGeometry(width, height);
+        }
 
-            /*
-             * Find the coordinates of the center point on the screen, and ignore the window
-             * insets, so that, on round watches with a "chin", the watch face is centered on the
-             * entire screen, not just the usable portion.
-             */
-            mCenterX = width / 2f;
-            mCenterY = height / 2f;
-            /*
-             * Calculate lengths of different hands based on watch screen size.
-             */
-            mSecondHandLength = (float) (mCenterX * 0.875);
-            sMinuteHandLength = (float) (mCenterX * 0.75);
-            sHourHandLength = (float) (mCenterX * 0.5);
+        /**
+         * 尺寸、形状或缺口变化时重新计算几何，并通知依赖几何的图层和后台线程
+         */
+        private void updateGeometry(int width, int height) {
+            if (mGeometry.matches(width, height, mRoundScreen, mBottomInset)) {
+                return;
+            }
+            mGeometry = new FaceGeometry(width, height, mRoundScreen, mBottomInset, dateTextSize,
+                    COMPLICATION_IDS.length);
+
+            // 重新分配缓存图层，文字交给后台线程重新排版
+            mDialLayer.resize(width, height);
+            mMinuteLayer.resize(width, height);
+            mHitRegions = new HitRegions(mGeometry, dateTextSize, COMPLICATION_IDS.length);
+            mAmbientRenderer.setGeometry(mGeometry);
+            mPrerenderer.setGeometry(mGeometry);
+            mWorker.setGeometry(mGeometry);
+            // 数字模式：字号随表盘尺寸变化，图集在下次绘制时重建
+            float radius = mGeometry.getRadius();
+            mDigitPaint.setTextSize(radius / 2f);
+            float ringRadius = radius - RING_STROKE_WIDTH / 2;
+            float centerX = mGeometry.getCenterX();
+            float centerY = mGeometry.getCenterY();
+            mArcRect.set(centerX - ringRadius, centerY - ringRadius,
+                    centerX + ringRadius, centerY + ringRadius);
+
+            // 复杂功能槽位区域变化后重新排版
+            for (int id : COMPLICATION_IDS) {
+                if (mComplicationData[id] != null) {
+                    mComplicationDecoder.decode(id, mComplicationData[id],
+                            mGeometry.getComplicationBounds(id));
+                }
+            }
         }
 
         /**
          * Captures tap event (and tap type). The {@link WatchFaceService#TAP_TYPE_TAP} case can be
          * used for implementing specific logic to handle the gesture.
+         * <p>
+         * 按下和取消不改变画面，不重绘；点击按区域执行操作，只重绘受影响的图层
          */
         @Override
         public void onTapCommand(int tapType, int x, int y, long eventTime) {
-            switch (tapType) {
-                case TAP_TYPE_TOUCH:
-                    // The user has started touching the screen.
+            if (tapType != TAP_TYPE_TAP) {
+                return;
+            }
+            int region = mHitRegions.find(x, y);
+            if (mDigital && region != HitRegions.REGION_CENTER) {
+                // 数字表盘只显示时间，其它区域没有内容
+                return;
+            }
+            switch (region) {
+                case HitRegions.REGION_CENTER:
+                    // 切换指针、数字表盘，两个缓存图层都重绘一次
+                    mDigital = !mDigital;
+                    mDialLayer.invalidate();
+                    mMinuteLayer.invalidate();
+                    mTicks.requestFrame(TickScheduler.SOURCE_TAP);
+                    break;
+                case HitRegions.REGION_DATE:
+                    // 后台线程重新排版后发布新快照，只重绘分钟图层
+                    mDateStyle = (mDateStyle + 1) % DateLabelCache.STYLE_COUNT;
+                    mWorker.setDateStyle(mDateStyle);
+                    break;
+                case HitRegions.REGION_BATTERY:
+                    startActivitySafely(new Intent(Intent.ACTION_POWER_USAGE_SUMMARY));
+                    break;
+                case HitRegions.REGION_NOTICE:
+                    // 系统没有公开打开通知列表的 Intent，上滑即可查看，这里只吞掉点击
                     break;
-                case TAP_TYPE_TOUCH_CANCEL:
-                    // The user has started a different gesture or otherwise cancelled the tap.
+                case HitRegions.REGION_NONE:
                     break;
-                case TAP_TYPE_TAP:
-                    // 点击事件
+                default:
+                    sendComplicationTap(region - HitRegions.REGION_COMPLICATION);
                     break;
             }
-            invalidate();
+        }
+
+        private void startActivitySafely(Intent intent) {
+            try {
+                startActivity(intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK));
+            } catch (ActivityNotFoundException e) {
+                Log.w(TAG, "No activity for " + intent.getAction());
+            }
+        }
+
+        /**
+         * 执行复杂功能的点击操作，画面由之后的数据更新决定
+         */
+        private void sendComplicationTap(int id) {
+            ComplicationData data = mComplicationData[id];
+            if (data == null || mComplications[id] == null || data.getTapAction() == null) {
+                return;
+            }
+            try {
+                data.getTapAction().send();
+            } catch (PendingIntent.CanceledException e) {
+                Log.w(TAG, "Complication " + id + " tap action cancelled", e);
+            }
         }
 
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
-            // 更新绘制时间
+            long drawStart = System.nanoTime();
+            // 之前合并的重绘请求由本帧完成
+            int sources = mTicks.onFrame();
+            drawFrame(canvas, drawStart);
+            mTelemetry.onFrame(sources, System.nanoTime() - drawStart);
+        }
+
+        private void drawFrame(Canvas canvas, long drawStart) {
+            long frameStart = mFrameStats.begin();
+            // 更新绘制时间，分钟以上的内容来自后台线程的快照
             long now = System.currentTimeMillis();
-            mCalendar.setTimeInMillis(now);
+            FrameModel model = mWorker.getModel();
+            updateTrace(now);
+
+            if (mAmbient) {
+                // 微光模式每分钟一帧，优先贴上预渲染的画面，输入有变化时同步绘制
+                long stageStart = mFrameStats.begin();
+                mRender.setTarget(RenderTrace.TARGET_SCREEN, canvas);
+                boolean prerendered = mPrerenderer.draw(mRender, now / MINUTE_MS, model);
+                if (!prerendered) {
+                    mAmbientRenderer.draw(mRender, model);
+                }
+                mFrameStats.countAmbientFrame(prerendered);
+                mFrameStats.end(FrameStats.STAGE_AMBIENT, stageStart);
+                mFrameStats.endFrame(frameStart);
+                updateStartup(model);
+                return;
+            }
+            // 质量档位只作用于交互模式
+            updateQuality(model);
+
+            if (mStartupPending && !model.isLaidOut() && drawStartupSnapshot(canvas, now)) {
+                // 文字尚未排版，先显示上次保存的画面
+                mFrameStats.endFrame(frameStart);
+                updateStartup(model);
+                return;
+            }
+
+            if (!mDialLayer.isAllocated()) {
+                // 尚未拿到表盘尺寸，直接绘制
+                mRender.setTarget(RenderTrace.TARGET_SCREEN, canvas);
+                if (mDigital) {
+                    drawDigitalBackground(mRender);
+                    drawDigitalTime(mRender, model);
+                } else {
+                    drawBackground(mRender);
+                    drawWatchFace(mRender, model);
+                }
+                drawSeconds(mRender, now);
+                mFrameStats.endFrame(frameStart);
+                updateStartup(model);
+                return;
+            }
+
+            // 静态表盘图层，键为当前表盘样式
+            long dialKey = mDigital ? 1 : 0;
+            if (!mDialLayer.isValid(dialKey)) {
+                mRender.setTarget(RenderTrace.TARGET_DIAL, mDialLayer.begin(dialKey));
+                if (mDigital) {
+                    drawDigitalBackground(mRender);
+                } else {
+                    drawBackground(mRender);
+                }
+            }
+            // 分钟图层，键为快照版本
+            long minuteKey = model.getVersion();
+            if (!mMinuteLayer.isValid(minuteKey)) {
+                mRender.setTarget(RenderTrace.TARGET_MINUTE, mMinuteLayer.begin(minuteKey));
+                if (mDigital) {
+                    drawDigitalTime(mRender, model);
+                } else {
+                    drawWatchFace(mRender, model);
+                }
+            }
+
+            long stageStart = mFrameStats.begin();
+            mRender.setTarget(RenderTrace.TARGET_SCREEN, canvas);
+            boolean transition = mTransition.beginFrame(SystemClock.elapsedRealtime());
+            if (transition) {
+                // 过渡中按关键帧透明度贴图层，黑色背景上逐渐变亮
+                mRender.drawColor(Color.BLACK);
+                mDialLayer.draw(mRender, mTransition.getDialPaint());
+                mMinuteLayer.draw(mRender, mTransition.getContentPaint());
+            } else {
+                mDialLayer.draw(mRender);
+                mMinuteLayer.draw(mRender);
+            }
+            mFrameStats.end(FrameStats.STAGE_COMPOSITE, stageStart);
+            // 每帧只绘制秒针或秒数圆环
+            stageStart = mFrameStats.begin();
+            drawSeconds(mRender, now);
+            mFrameStats.end(FrameStats.STAGE_SECOND_HAND, stageStart);
+
+            long drawNanos = System.nanoTime() - drawStart;
+            mGovernor.onFrameDrawn(drawNanos);
+            if (transition) {
+                // 动画结束或因超出预算终止后，再画一帧恢复正常状态
+                mTransition.endFrame(drawNanos);
+                mTicks.requestFrame(TickScheduler.SOURCE_TRANSITION);
+            }
+            if (shouldTimerBeRunning() && mFrameScheduler.onFrameDrawn(now, drawNanos)) {
+                Log.d(TAG, "Second hand frame rate " + mFrameScheduler.getFrameRate()
+                        + " fps, achieved " + mFrameScheduler.getAchievedFps() + " fps");
+                mTicks.reschedule();
+            }
+            mFrameStats.endFrame(frameStart);
+            if (frameStart != 0) {
+                mFrameStats.setFrameRate(mFrameScheduler.getFrameRate(),
+                        mFrameScheduler.getAchievedFps());
+            }
+            updateStartup(model);
+        }
+
+        /**
+         * 冷启动时贴上次保存的静态表盘和日期，按当前时间实时绘制指针
+         *
+         * @return 快照是否可用
+         */
+        private boolean drawStartupSnapshot(Canvas canvas, long now) {
+            SnapshotStore.Snapshot snapshot = mSnapshotStore.getLoaded();
+            if (snapshot == null || !mDialLayer.isAllocated()
+                    || !snapshot.matches(canvas.getWidth(), canvas.getHeight(), snapshotFlags())) {
+                return false;
+            }
+            mSnapshotTime.setTimeInMillis(now);
+            int hourOfDay = mSnapshotTime.getHourOfDay();
+            int minute = mSnapshotTime.getMinute();
+            mRender.setTarget(RenderTrace.TARGET_SCREEN, canvas);
+            mRender.drawBitmap(snapshot.getDial(), 0, 0, null);
+            if (mDigital) {
+                // 小时制取自已发布的快照，不在绘制线程读取系统设置
+                drawDigitalTime(mRender, FrameModel.displayHour(hourOfDay,
+                        mWorker.getModel().is24HourFormat()), minute);
+            } else {
+                // 跨日启动时不显示旧日期，电量和通知等排版完成后再出现
+                snapshot.drawDate(mRender, mDatePaint, mSnapshotTime.getLocalDay());
+                drawHands(mRender, HandAngles.hours(hourOfDay, minute),
+                        HandAngles.minutes(minute));
+            }
+            drawSeconds(mRender, now);
+            mStartupFromSnapshot = true;
+            return true;
+        }
+
+        /**
+         * 冷启动计时，首个使用已排版快照的帧视为内容完整
+         */
+        private void updateStartup(FrameModel model) {
+            if (!mStartupPending) {
+                return;
+            }
+            long sinceCreate = SystemClock.elapsedRealtime() - mEngineCreatedAt;
+            mFrameStats.recordFirstFrame(sinceCreate);
+            if (model.isLaidOut()) {
+                mStartupPending = false;
+                mFrameStats.recordStartup(sinceCreate, mStartupFromSnapshot);
+                mSnapshotStore.release();
+                Log.i(TAG, "First complete frame " + sinceCreate + " ms after engine creation"
+                        + (mStartupFromSnapshot ? ", snapshot shown before" : ""));
+            }
+        }
+
+        /**
+         * 保存静态表盘和已排版的日期文字，内容未变化时跳过
+         */
+        private void saveSnapshot() {
+            FrameModel model = mWorker.getModel();
+            long dialKey = mDigital ? 1 : 0;
+            if (model.getVersion() == mSavedSnapshotVersion || !mDialLayer.isValid(dialKey)
+                    || !model.isLaidOut()) {
+                return;
+            }
+            mSavedSnapshotVersion = model.getVersion();
+            Bitmap dial = Bitmap.createBitmap(mGeometry.getWidth(), mGeometry.getHeight(),
+                    Bitmap.Config.ARGB_8888);
+            // 不经过 mRender，不记录到绘制命令轨迹
+            mCanvasCommands.setTarget(RenderTrace.TARGET_SCREEN, new Canvas(dial));
+            mDialLayer.draw(mCanvasCommands);
+            // 日期文字属于快照分钟所在的本地日期
+            mSnapshotTime.setTimeZone(TimeZone.getDefault());
+            mSnapshotTime.setTimeInMillis(model.getMinute() * MINUTE_MS);
+            mSnapshotStore.save(dial, snapshotFlags(), mSnapshotTime.getLocalDay(),
+                    model.getDate());
+        }
 
-            drawBackground(canvas);
-            drawWatchFace(canvas);
+        private int snapshotFlags() {
+            return (mDigital ? SnapshotStore.FLAG_DIGITAL : 0)
+                    | (mMuteMode ? SnapshotStore.FLAG_MUTE : 0);
         }
 
         /**
-         * 绘制数字表盘
+         * 数字表盘背景
          */
-        private void drawWatchFaceNumber(Canvas canvas) {
-            int width = canvas.getWidth();
-            int height = canvas.getHeight();
+        private void drawDigitalBackground(RenderCommands render) {
+            long stageStart = mFrameStats.begin();
+            render.drawColor(Color.argb(255, 30, 30, 30));
+            mFrameStats.end(FrameStats.STAGE_BACKGROUND, stageStart);
+        }
 
-            final float seconds =
-                    (mCalendar.get(Calendar.SECOND) + mCalendar.get(Calendar.MILLISECOND) / 1000f);
-            canvas.drawArc(new RectF(0, 0, width, height), -90, seconds * 6, true, mSecondPaint);
-            canvas.drawCircle(mCenterX, mCenterY, mCenterX - 10, mBackgroundPaint);
+        /**
+         * 数字表盘时、分，从字形图集贴图，等宽单元格不需要排版
+         */
+        private void drawDigitalTime(RenderCommands render, FrameModel model) {
+            drawDigitalTime(render, model.getDisplayHour(), model.getMinuteOfHour());
+        }
 
-            // 设置时分秒画笔的字体
-            mHourPaint.setTypeface(Typeface.SANS_SERIF);
-            mHourPaint.setTextSize(width / 4f);
-            mMinutePaint.setTypeface(Typeface.SANS_SERIF);
-            mMinutePaint.setTextSize(width / 4f);
+        private void drawDigitalTime(RenderCommands render, int hour, int minute) {
+            long stageStart = mFrameStats.begin();
+            mDigitAtlas.update(mDigitPaint);
+            int cell = mDigitAtlas.getCellWidth();
+            float top = mGeometry.getCenterY() - mDigitAtlas.getCenterY();
+            float hourLeft = mGeometry.getCenterX() - DIGIT_GAP - cell * 2;
+            float minuteLeft = mGeometry.getCenterX() + DIGIT_GAP;
+            mDigitAtlas.draw(render, hour / 10, hourLeft, top);
+            mDigitAtlas.draw(render, hour % 10, hourLeft + cell, top);
+            mDigitAtlas.draw(render, minute / 10, minuteLeft, top);
+            mDigitAtlas.draw(render, minute % 10, minuteLeft + cell, top);
+            mFrameStats.end(FrameStats.STAGE_HANDS, stageStart);
+        }
 
-            int hour = mCalendar.get(Calendar.HOUR);
-            int minute = mCalendar.get(Calendar.MINUTE);
-            String hourStr = hour < 10 ? "0" + hour : "" + hour;
-            String minuteStr = minute < 10 ? "0" + minute : "" + minute;
-            Rect rect = new Rect();
-            mHourPaint.getTextBounds(hourStr, 0, hourStr.length(), rect);
+        /**
+         * 秒针或秒数圆环，最低质量档位不绘制
+         */
+        private void drawSeconds(RenderCommands render, long now) {
+            if (mGovernor.getTier() == QualityGovernor.TIER_MINIMAL) {
+                return;
+            }
+            if (mDigital) {
+                drawDigitalSeconds(render, now);
+            } else {
+                drawSecondHand(render, now);
+            }
+        }
 
-            canvas.drawText(
-                    hourStr
-                    , width / 2f - 10 - mMinutePaint.measureText(hourStr)
-                    , height / 2f + (rect.height() / 2f)
-                    , mHourPaint
-            );
-            canvas.drawText(
-                    minuteStr
-                    , width / 2f + 10
-                    , height / 2f + (rect.height() / 2f)
-                    , mMinutePaint
-            );
+        /**
+         * 数字表盘秒数圆环，每帧按角度裁剪预先绘制的圆环
+         */
+        private void drawDigitalSeconds(RenderCommands render, long now) {
+            if (mTransition.isRunning()) {
+                // 过渡结束后再出现
+                return;
+            }
+            mRingSprite.update(mArcRect, mRingPaint.getStrokeWidth());
+            mRingSprite.draw(render, HandAngles.seconds(now), mRingPaint);
         }
 
         /**
          * 绘制背景
          *
-         * @param canvas 画布
+         * @param render 绘制命令
          */
-        private void drawBackground(Canvas canvas) {
+        private void drawBackground(RenderCommands render) {
+            long stageStart = mFrameStats.begin();
             // 根据是否为微光模式绘制背景
             if (mAmbient) {
-                canvas.drawColor(Color.BLACK);
+                render.drawColor(Color.BLACK);
             } else {
-                canvas.drawColor(Color.argb(255, 30, 30, 30));
-            }
-            /*
-             *使用旋转画布的方式绘制刻度
-             */
-            // 保存旋转前角度
-            canvas.save();
-            for (int tickIndex = 0; tickIndex < TICK_SIZE; tickIndex++) {
-                if (tickIndex % 5 == 0) {
-                    // 每5个刻度绘制一次长刻度
-                    canvas.drawLine(mCenterX, 0,
-                            mCenterX, LONG_TICK_STOP, mTickAndCirclePaint);
-                }
-                // 每次旋转一个短刻度角度
-                canvas.rotate(tickRot, mCenterX, mCenterY);
-                // 绘制短刻度
-                canvas.drawLine(mCenterX, SHORT_TICK_START,
-                        mCenterX, SHORT_TICK_STOP, mTickAndCirclePaint);
+                render.drawColor(Color.argb(255, 30, 30, 30));
             }
-            // 恢复旋转前角度
-            canvas.restore();
+            // 刻度端点已按屏幕形状预先计算，整点刻度和短刻度各一次绘制
+            render.drawLines(mGeometry.getLongTicks(), mHands.getTick());
+            render.drawLines(mGeometry.getShortTicks(), mHands.getTick());
+            mFrameStats.end(FrameStats.STAGE_BACKGROUND, stageStart);
         }
 
         /**
-         * 指针表盘
+         * 指针表盘，不含秒针
          */
-        private void drawWatchFace(Canvas canvas) {
+        private void drawWatchFace(RenderCommands render, FrameModel model) {
             /*
-             * 日期和星期
+             * 日期和星期，已由后台线程排版
              */
-            // 获取此刻日期
-            year = mCalendar.get(Calendar.YEAR);
-            month = mCalendar.get(Calendar.MONTH) + 1;
-            day = mCalendar.get(Calendar.DAY_OF_MONTH);
-            // 如果日期与上次相同，不重新计算日期
-            if (day != oldDay || month != oldMonth || year != oldYear) {
-                oldYear = year;
-                oldMonth = month;
-                oldDay = day;
-                dayWeek = mCalendar.get(Calendar.DAY_OF_WEEK);
-                timeSb.delete(0, timeSb.length());
-                timeSb.append(month < 10 ? "0" : "").append(month).append("月")
-                        .append(day < 10 ? "0" : "").append(day).append("日").append("  ");
-                switch (dayWeek) {
-                    case 2:
-                        timeSb.append("周一");
-                        break;
-                    case 3:
-                        timeSb.append("周二");
-                        break;
-                    case 4:
-                        timeSb.append("周三");
-                        break;
-                    case 5:
-                        timeSb.append("周四");
-                        break;
-                    case 6:
-                        timeSb.append("周五");
-                        break;
-                    case 7:
-                        timeSb.append("周六");
-                        break;
-                    case 1:
-                        timeSb.append("周日");
-                        break;
-                    default:
-                        break;
-                }
-                dataTextWidth = canvas.getWidth();
-                dataTextHeight = canvas.getHeight();
-                dataText = timeSb.toString();
-            }
-            // 绘制日期
-            canvas.drawText(dataText
-                    , (dataTextWidth - mDatePaint.measureText(dataText)) / 2
-                    , (float) (dataTextHeight / 2 - dateTextSize - 20)
-                    , mDatePaint
-            );
+            long stageStart = mFrameStats.begin();
+            model.getDate().draw(render, mDatePaint);
+            mFrameStats.end(FrameStats.STAGE_DATE, stageStart);
 
             // 电量
-            electric.delete(0, electric.length());
-            electric.append(manager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY)).append("%");
-            electricStr = electric.toString();
-            canvas.drawText(electricStr
-                    , (dataTextWidth - mDatePaint.measureText(electricStr)) / 2
-                    , (float) (dataTextHeight / 2 + dateTextSize + 40)
-                    , mDatePaint);
-
-            // 获取未读通知数量
-            noticeNumber = getUnreadCount();
-            if (noticeNumber > 0) {
-                // 绘制未读通知数量
-                notice.delete(0, notice.length());
-                notice.append(noticeNumber).append(" 条新通知");
-                noticeStr = notice.toString();
-                canvas.drawText(noticeStr
-                        , (dataTextWidth - mMinutePaint.measureText(noticeStr)) / 2
-                        , (float) (dataTextHeight / 2 + dateTextSize + 80)
-                        , mMinutePaint);
+            stageStart = mFrameStats.begin();
+            model.getBattery().draw(render, mDatePaint);
+            mFrameStats.end(FrameStats.STAGE_BATTERY, stageStart);
+
+            // 未读通知数量
+            stageStart = mFrameStats.begin();
+            if (model.getNotice() != null) {
+                model.getNotice().draw(render, mHands.getMinute());
             }
+            mFrameStats.end(FrameStats.STAGE_UNREAD, stageStart);
 
-
-            /*
-             * 获取时间
-             * 360 / 60 = 6 and 360 / 12 = 30.
-             */
-            final float seconds =
-                    (mCalendar.get(Calendar.SECOND) + mCalendar.get(Calendar.MILLISECOND) / 1000f);
-            final float secondsRotation = seconds * 6f;
-
-            final float minutesRotation = mCalendar.get(Calendar.MINUTE) * 6f;
-
-            final float hourHandOffset = mCalendar.get(Calendar.MINUTE) / 2f;
-            final float hoursRotation = (mCalendar.get(Calendar.HOUR) * 30) + hourHandOffset;
-
-            /*
-             * 保存旋转前画布状态
-             */
-            canvas.save();
-
-            canvas.rotate(hoursRotation, mCenterX, mCenterY);
-            canvas.drawLine(
-                    mCenterX,
-                    mCenterY - CENTER_GAP_AND_CIRCLE_RADIUS,
-                    mCenterX,
-                    mCenterY - sHourHandLength,
-                    mHourPaint);
-
-            canvas.rotate(minutesRotation - hoursRotation, mCenterX, mCenterY);
-            canvas.drawLine(
-                    mCenterX,
-                    mCenterY - CENTER_GAP_AND_CIRCLE_RADIUS,
-                    mCenterX,
-                    mCenterY - sMinuteHandLength,
-                    mMinutePaint);
-
-            /*
-             * 根据是否为微光状态绘制秒针
-             */
-            if (!mAmbient) {
-                canvas.rotate(secondsRotation - minutesRotation, mCenterX, mCenterY);
-                canvas.drawLine(
-                        mCenterX,
-                        mCenterY - CENTER_GAP_AND_CIRCLE_RADIUS,
-                        mCenterX,
-                        mCenterY - mSecondHandLength,
-                        mSecondPaint);
-
+            // 复杂功能，只贴已解码的结果
+            stageStart = mFrameStats.begin();
+            for (ComplicationLayout complication : mComplications) {
+                if (complication != null) {
+                    complication.draw(render, mHands.getMinute(), null);
+                }
             }
+            mFrameStats.end(FrameStats.STAGE_COMPLICATIONS, stageStart);
+
+            drawHands(render, model.getHoursRotation(), model.getMinutesRotation());
+        }
 
-            // 绘制表心
-            canvas.drawCircle(
-                    mCenterX,
-                    mCenterY,
-                    CENTER_GAP_AND_CIRCLE_RADIUS,
-                    mTickAndCirclePaint);
+        /**
+         * 时针和分针
+         */
+        private void drawHands(RenderCommands render, float hoursRotation,
+                               float minutesRotation) {
+            final float centerX = mGeometry.getCenterX();
+            final float centerY = mGeometry.getCenterY();
+
+            // 使用预先绘制的指针位图，不再每次计算阴影
+            long stageStart = mFrameStats.begin();
+            mHourSprite.update(mHands.getHour(), CENTER_GAP_AND_CIRCLE_RADIUS,
+                    mGeometry.getHourHandLength(), null, 0);
+            mHourSprite.draw(render, hoursRotation, centerX, centerY);
+            mMinuteSprite.update(mHands.getMinute(), CENTER_GAP_AND_CIRCLE_RADIUS,
+                    mGeometry.getMinuteHandLength(), null, 0);
+            mMinuteSprite.draw(render, minutesRotation, centerX, centerY);
+            mFrameStats.end(FrameStats.STAGE_HANDS, stageStart);
+        }
 
-            /*
-             * 还原画布状态
-             */
-            canvas.restore();
+        /**
+         * 秒针和表心，每帧绘制
+         */
+        private void drawSecondHand(RenderCommands render, long now) {
+            final float secondsRotation = HandAngles.seconds(now);
+
+            // 微光模式由 mAmbientRenderer 绘制，这里只有交互模式；表心圆随秒针位图一起旋转
+            mSecondSprite.update(mHands.getSecond(), CENTER_GAP_AND_CIRCLE_RADIUS,
+                    mGeometry.getSecondHandLength(), mHands.getTick(),
+                    CENTER_GAP_AND_CIRCLE_RADIUS);
+            mSecondSprite.draw(render, secondsRotation,
+                    mGeometry.getCenterX(), mGeometry.getCenterY(),
+                    mTransition.getSecondPaint());
         }
 
         @Override
         public void onVisibilityChanged(boolean visible) {
             super.onVisibilityChanged(visible);
+            mTicks.resetPendingFrame();
+            mFrameStats.onModeChanged(visible, mAmbient, SystemClock.elapsedRealtime());
+            updateTelemetryMode();
 
             if (visible) {
-                registerReceiver();
-                /* Update time zone in case it changed while we weren't visible. */
-                mCalendar.setTimeZone(TimeZone.getDefault());
-                invalidate();
+                // 后台线程注册广播并更新时区
+                mWorker.start();
+                // 不可见期间不一定收到回调，重新读取未读数量
+                mUnreadCount = getUnreadCount();
+                flushUnreadCount();
+                mTicks.requestFrame(TickScheduler.SOURCE_VISIBILITY);
             } else {
-                unregisterReceiver();
+                mTransition.cancel();
+                // 下次冷启动时使用
+                saveSnapshot();
+                mWorker.stop();
             }
 
             /* Check and trigger whether or not timer should be running (only in active mode). */
             updateTimer();
         }
 
-        private void registerReceiver() {
-            if (mRegisteredTimeZoneReceiver) {
-                return;
+        /**
+         * Starts/stops the {@link #mUpdateTimeHandler} timer based on the state of the watch face.
+         */
+        private void updateTimer() {
+            boolean running = shouldTimerBeRunning();
+            if (!running) {
+                mFrameScheduler.reset();
             }
-            mRegisteredTimeZoneReceiver = true;
-            IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
-            MyWatchFace.this.registerReceiver(mTimeZoneReceiver, filter);
+            mTicks.setRunning(running);
         }
 
-        private void unregisterReceiver() {
-            if (!mRegisteredTimeZoneReceiver) {
-                return;
+        /**
+         * 按 dumpsys 请求开始或结束绘制命令轨迹记录
+         *
+         * @param now 帧时间
+         */
+        private void updateTrace(long now) {
+            int requested = mTraceFramesRequested;
+            if (mRecorder == null && requested > 0) {
+                mTraceFramesRequested = 0;
+                mRecorder = new RecordingRenderCommands(
+                        mCanvasCommands, TRACE_BUFFER_BYTES, requested);
+                registerTracePaints(mRecorder);
+                mRender = mRecorder;
+                // 第一帧记录完整的图层绘制
+                mDialLayer.invalidate();
+                mMinuteLayer.invalidate();
+            }
+            if (mRecorder != null && !mRecorder.beginFrame(now)) {
+                final RecordingRenderCommands recorder = mRecorder;
+                mRecorder = null;
+                mRender = mCanvasCommands;
+                // 写文件不占用绘制线程
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        File file = new File(getFilesDir(), TRACE_FILE_NAME);
+                        try (FileOutputStream out = new FileOutputStream(file)) {
+                            recorder.writeTo(out);
+                            Log.i(TAG, "Wrote " + recorder.getFrameCount() + " frames to " + file);
+                        } catch (IOException e) {
+                            Log.e(TAG, "Failed to write render trace", e);
+                        }
+                    }
+                }, "render-trace").start();
             }
-            mRegisteredTimeZoneReceiver = false;
-            MyWatchFace.this.unregisterReceiver(mTimeZoneReceiver);
         }
 
         /**
-         * Starts/stops the {@link #mUpdateTimeHandler} timer based on the state of the watch face.
+         * 遥测按可见性、微光和勿扰状态区分模式
          */
-        private void updateTimer() {
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
-            if (shouldTimerBeRunning()) {
-                mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_TIME);
+        private void updateTelemetryMode() {
+            int mode;
+            if (!isVisible()) {
+                mode = TelemetryLog.MODE_HIDDEN;
+            } else if (mAmbient) {
+                mode = TelemetryFormat.MODE_AMBIENT;
+            } else {
+                mode = mMuteMode ? TelemetryFormat.MODE_MUTE : TelemetryFormat.MODE_INTERACTIVE;
+            }
+            mTelemetry.setMode(mode, SystemClock.elapsedRealtime());
+        }
+
+        /**
+         * 遥测区间到期时结束当前记录，在分钟更新和 {@link #onTimeTick()} 时检查
+         */
+        private void updateTelemetry() {
+            mTelemetry.update(mWorker.getModel(), System.currentTimeMillis(),
+                    SystemClock.elapsedRealtime());
+        }
+
+        /**
+         * 登记轨迹中可识别的画笔，编号随当前画笔组
+         */
+        private void registerTracePaints(RecordingRenderCommands recorder) {
+            recorder.setPaints(mBackgroundPaint, mDatePaint, mHands.getHour(), mHands.getMinute(),
+                    mHands.getSecond(), mHands.getTick(), mRingPaint);
+        }
+
+        /**
+         * 按电量、电池温度和绘制耗时选择质量档位，切换时整体替换画笔并调整秒针节奏
+         */
+        private void updateQuality(FrameModel model) {
+            if (!mGovernor.evaluate(model.getBatteryPercent(), model.isCharging(),
+                    model.getBatteryTemperature(), SystemClock.elapsedRealtime())) {
+                return;
+            }
+            int tier = mGovernor.getTier();
+            Log.i(TAG, "Quality tier " + QualityGovernor.tierName(tier) + ", "
+                    + mGovernor.getReason());
+            mFrameStats.setQualityTier(tier);
+            applyHandPaints();
+            if (mFrameScheduler.setReduced(tier != QualityGovernor.TIER_FULL)) {
+                Log.d(TAG, "Second hand frame rate " + mFrameScheduler.getFrameRate() + " fps");
             }
+            // 最低档位停止秒针定时，只随分钟更新
+            updateTimer();
+            mTicks.reschedule();
         }
 
         /**
@@ -631,20 +1316,15 @@ public class MyWatchFace extends CanvasWatchFaceService {
          * should only run in active mode.
          */
         private boolean shouldTimerBeRunning() {
-            return isVisible() && !mAmbient;
+            return isVisible() && !mAmbient && mGovernor.getTier() != QualityGovernor.TIER_MINIMAL;
         }
 
         /**
          * Handle updating the time periodically in interactive mode.
          */
         private void handleUpdateTimeMessage() {
-            invalidate();
-            if (shouldTimerBeRunning()) {
-                long timeMs = System.currentTimeMillis();
-                long delayMs = INTERACTIVE_UPDATE_RATE_MS
-                        - (timeMs % INTERACTIVE_UPDATE_RATE_MS);
-                mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
-            }
+            // 请求重绘并对齐到下一个墙钟帧边界
+            mTicks.onTick();
         }
     }
 }
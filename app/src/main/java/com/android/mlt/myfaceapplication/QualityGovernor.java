@@ -0,0 +1,136 @@
+package com.android.mlt.myfaceapplication;
+
+/**
+ * 交互模式绘制质量分档。
+ * <p>
+ * 综合电量、电池温度和绘制耗时三路信号选择档位，取三者中最低的质量。每路信号进入
+ * 较低档位的阈值和恢复的阈值之间留有回差；降档立即生效，升档要求距上次切换至少
+ * {@link #MIN_DWELL_MS}，避免在阈值附近来回切换。
+ * 不依赖 Android 类，只在绘制线程调用。
+ */
+final class QualityGovernor {
+
+    /**
+     * 完整：抗锯齿、阴影、平滑秒针
+     */
+    static final int TIER_FULL = 0;
+    /**
+     * 降级：抗锯齿、无阴影、秒针每秒跳动
+     */
+    static final int TIER_REDUCED = 1;
+    /**
+     * 最低：抗锯齿、无阴影、无秒针，只在每分钟更新
+     */
+    static final int TIER_MINIMAL = 2;
+    static final int TIER_COUNT = 3;
+
+    private static final String[] TIER_NAMES = {"full", "reduced", "minimal"};
+
+    // 各路信号进入 TIER_REDUCED、TIER_MINIMAL 的阈值，数值越大越差
+    // 电量以已用百分比表示：剩余 30% 以下降级，15% 以下最低
+    private static final float[] BATTERY_USED_ENTER = {70, 85};
+    private static final float BATTERY_HYSTERESIS = 5;
+    // 电池温度，摄氏度；没有设备温控状态接口时以电池温度代替
+    private static final float[] TEMPERATURE_ENTER = {40, 45};
+    private static final float TEMPERATURE_HYSTERESIS = 2;
+    // 绘制耗时平均值，毫秒；只会降到 TIER_REDUCED
+    private static final float[] DRAW_MS_ENTER = {12, Float.MAX_VALUE};
+    private static final float DRAW_MS_HYSTERESIS = 6;
+
+    // 绘制耗时指数平均的权重
+    private static final float DRAW_MS_WEIGHT = 0.1f;
+    // 升档前在当前档位的最短停留时间
+    private static final long MIN_DWELL_MS = 30_000;
+
+    private int mTier = TIER_FULL;
+    private long mChangedAtMs = Long.MIN_VALUE / 2;
+
+    // 各路信号当前所在档位
+    private int mBatteryTier;
+    private int mTemperatureTier;
+    private int mDrawTier;
+
+    private float mAverageDrawMs;
+    private boolean mHasDrawSample;
+
+    private String mReason = "initial";
+
+    /**
+     * 记录一帧的绘制耗时
+     */
+    void onFrameDrawn(long drawNanos) {
+        float drawMs = drawNanos / 1_000_000f;
+        if (mHasDrawSample) {
+            mAverageDrawMs += (drawMs - mAverageDrawMs) * DRAW_MS_WEIGHT;
+        } else {
+            mAverageDrawMs = drawMs;
+            mHasDrawSample = true;
+        }
+    }
+
+    /**
+     * 按最新信号重新选择档位
+     *
+     * @param batteryPercent  电量百分比，未知时为 -1
+     * @param charging        是否在充电
+     * @param temperatureTenths 电池温度，单位 0.1 摄氏度
+     * @param nowMs           单调时钟
+     * @return 档位是否变化
+     */
+    boolean evaluate(int batteryPercent, boolean charging, int temperatureTenths, long nowMs) {
+        mBatteryTier = charging || batteryPercent < 0 ? TIER_FULL
+                : level(100 - batteryPercent, mBatteryTier, BATTERY_USED_ENTER,
+                BATTERY_HYSTERESIS);
+        mTemperatureTier = level(temperatureTenths / 10f, mTemperatureTier, TEMPERATURE_ENTER,
+                TEMPERATURE_HYSTERESIS);
+        mDrawTier = mHasDrawSample
+                ? level(mAverageDrawMs, mDrawTier, DRAW_MS_ENTER, DRAW_MS_HYSTERESIS)
+                : TIER_FULL;
+
+        int tier = Math.max(mBatteryTier, Math.max(mTemperatureTier, mDrawTier));
+        if (tier == mTier || (tier < mTier && nowMs - mChangedAtMs < MIN_DWELL_MS)) {
+            return false;
+        }
+        mTier = tier;
+        mChangedAtMs = nowMs;
+        mReason = "battery=" + batteryPercent + (charging ? "+" : "")
+                + " temp=" + temperatureTenths / 10f
+                + " drawMs=" + Math.round(mAverageDrawMs * 10) / 10f;
+        // 切换后耗时重新统计，避免旧档位的耗时影响新档位
+        mHasDrawSample = false;
+        return true;
+    }
+
+    int getTier() {
+        return mTier;
+    }
+
+    /**
+     * @return 最近一次切换时的信号
+     */
+    String getReason() {
+        return mReason;
+    }
+
+    static String tierName(int tier) {
+        return TIER_NAMES[tier];
+    }
+
+    /**
+     * 单路信号的档位，已在较差档位时只需超过进入阈值减去回差即可保持
+     *
+     * @param value     信号值，越大越差
+     * @param current   该信号当前档位
+     * @param enter     进入各较差档位的阈值
+     */
+    private static int level(float value, int current, float[] enter, float hysteresis) {
+        int level = TIER_FULL;
+        for (int i = 0; i < enter.length; i++) {
+            float threshold = current > i ? enter[i] - hysteresis : enter[i];
+            if (value >= threshold) {
+                level = i + 1;
+            }
+        }
+        return level;
+    }
+}
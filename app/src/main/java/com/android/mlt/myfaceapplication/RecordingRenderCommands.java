@@ -0,0 +1,217 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 记录绘制命令轨迹的包装实现，命令同时转发给被包装的实现。
+ * <p>
+ * 这里只把 Android 参数换成画笔编号和数值，编码由 {@link RenderTraceWriter} 完成，
+ * 缓冲区写满后停止记录，格式见 {@link RenderTrace}。
+ */
+final class RecordingRenderCommands implements RenderCommands {
+
+    private final RenderCommands mDelegate;
+    private final RenderTraceWriter mWriter;
+    private final int mFrameLimit;
+    private Paint[] mPaints = new Paint[0];
+    private final float[] mMatrixValues = new float[9];
+    private int mFrames;
+
+    /**
+     * @param delegate   被包装的实现
+     * @param capacity   缓冲区字节数
+     * @param frameLimit 最多记录的帧数
+     */
+    RecordingRenderCommands(RenderCommands delegate, int capacity, int frameLimit) {
+        mDelegate = delegate;
+        mWriter = new RenderTraceWriter(capacity);
+        mFrameLimit = frameLimit;
+    }
+
+    /**
+     * 登记画笔，画笔编号为其在数组中的下标
+     */
+    void setPaints(Paint... paints) {
+        mPaints = paints;
+    }
+
+    /**
+     * 开始新的一帧
+     *
+     * @return 是否仍在记录
+     */
+    boolean beginFrame(long wallMs) {
+        if (isFinished()) {
+            return false;
+        }
+        mWriter.writeFrame(wallMs);
+        mFrames++;
+        return true;
+    }
+
+    /**
+     * @return 已记录到帧数上限或缓冲区写满
+     */
+    boolean isFinished() {
+        return mFrames >= mFrameLimit || mWriter.isOverflow();
+    }
+
+    int getFrameCount() {
+        return mFrames;
+    }
+
+    /**
+     * 写出已记录的轨迹
+     */
+    void writeTo(OutputStream out) throws IOException {
+        mWriter.writeTo(out);
+    }
+
+    @Override
+    public void setTarget(int target, Canvas canvas) {
+        mDelegate.setTarget(target, canvas);
+        mWriter.writeTarget(target);
+    }
+
+    @Override
+    public int getWidth() {
+        return mDelegate.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return mDelegate.getHeight();
+    }
+
+    @Override
+    public void save() {
+        mDelegate.save();
+        mWriter.writeSave();
+    }
+
+    @Override
+    public void restore() {
+        mDelegate.restore();
+        mWriter.writeRestore();
+    }
+
+    @Override
+    public void rotate(float degrees, float px, float py) {
+        mDelegate.rotate(degrees, px, py);
+        mWriter.writeRotate(degrees, px, py);
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+        mDelegate.translate(dx, dy);
+        mWriter.writeTranslate(dx, dy);
+    }
+
+    @Override
+    public void clipRect(RectF rect) {
+        mDelegate.clipRect(rect);
+        mWriter.writeClipRect(rect.left, rect.top, rect.right, rect.bottom);
+    }
+
+    @Override
+    public void drawColor(int color) {
+        mDelegate.drawColor(color);
+        mWriter.writeColor(color);
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+        mDelegate.drawLine(startX, startY, stopX, stopY, paint);
+        mWriter.writeLine(startX, startY, stopX, stopY, paintId(paint));
+    }
+
+    @Override
+    public void drawLines(float[] points, Paint paint) {
+        mDelegate.drawLines(points, paint);
+        mWriter.writeLines(points.length / 4, paintId(paint));
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, Paint paint) {
+        mDelegate.drawCircle(cx, cy, radius, paint);
+        mWriter.writeCircle(cx, cy, radius, paintId(paint));
+    }
+
+    @Override
+    public void drawRect(RectF rect, Paint paint) {
+        mDelegate.drawRect(rect, paint);
+        mWriter.writeRect(rect.left, rect.top, rect.right, rect.bottom, paintId(paint));
+    }
+
+    @Override
+    public void drawArc(RectF oval, float startAngle, float sweepAngle, boolean useCenter,
+                        Paint paint) {
+        mDelegate.drawArc(oval, startAngle, sweepAngle, useCenter, paint);
+        mWriter.writeArc(startAngle, sweepAngle, useCenter, paintId(paint));
+    }
+
+    @Override
+    public void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
+        mDelegate.drawText(text, index, count, x, y, paint);
+        mWriter.writeText(count, x, y, paintId(paint));
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+        mDelegate.drawBitmap(bitmap, left, top, paint);
+        mWriter.writeBitmap(bitmap.getWidth(), bitmap.getHeight(), left, top, paintId(paint));
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Matrix matrix, Paint paint) {
+        mDelegate.drawBitmap(bitmap, matrix, paint);
+        if (!mWriter.isOverflow()) {
+            matrix.getValues(mMatrixValues);
+            mWriter.writeBitmapMatrix(bitmap.getWidth(), bitmap.getHeight(),
+                    mMatrixValues[Matrix.MSCALE_X], mMatrixValues[Matrix.MSKEW_X],
+                    mMatrixValues[Matrix.MTRANS_X], mMatrixValues[Matrix.MSKEW_Y],
+                    mMatrixValues[Matrix.MSCALE_Y], mMatrixValues[Matrix.MTRANS_Y],
+                    paintId(paint));
+        }
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+        mDelegate.drawBitmap(bitmap, src, dst, paint);
+        mWriter.writeBitmapRect(bitmap.getWidth(), bitmap.getHeight(),
+                src.left, src.top, src.right, src.bottom,
+                dst.left, dst.top, dst.right, dst.bottom, paintId(paint));
+    }
+
+    @Override
+    public float measureText(Paint paint, char[] text, int index, int count) {
+        mWriter.writeMeasure(count, paintId(paint));
+        return mDelegate.measureText(paint, text, index, count);
+    }
+
+    @Override
+    public void getTextBounds(Paint paint, char[] text, int index, int count, Rect bounds) {
+        mWriter.writeBounds(count, paintId(paint));
+        mDelegate.getTextBounds(paint, text, index, count, bounds);
+    }
+
+    private byte paintId(Paint paint) {
+        if (paint == null) {
+            return RenderTrace.PAINT_NONE;
+        }
+        for (int i = 0; i < mPaints.length; i++) {
+            if (mPaints[i] == paint) {
+                return (byte) i;
+            }
+        }
+        return RenderTrace.PAINT_UNKNOWN;
+    }
+}
@@ -0,0 +1,70 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * 表盘绘制命令。
+ * <p>
+ * 所有绘制代码都通过该接口输出，正式实现 {@link CanvasRenderCommands} 直接转发到
+ * {@link Canvas}，{@link RecordingRenderCommands} 在转发的同时记录命令轨迹，
+ * 供 {@link TraceReplay} 离线统计和对比。
+ */
+interface RenderCommands {
+
+    /**
+     * 切换绘制目标
+     *
+     * @param target {@link RenderTrace} 中的 TARGET_* 常量
+     * @param canvas 目标画布
+     */
+    void setTarget(int target, Canvas canvas);
+
+    int getWidth();
+
+    int getHeight();
+
+    void save();
+
+    void restore();
+
+    void rotate(float degrees, float px, float py);
+
+    void translate(float dx, float dy);
+
+    /**
+     * 与当前裁剪区域取交集，矩形按当前变换映射
+     */
+    void clipRect(RectF rect);
+
+    void drawColor(int color);
+
+    void drawLine(float startX, float startY, float stopX, float stopY, Paint paint);
+
+    /**
+     * 一次绘制多条线段，每条 4 个值
+     */
+    void drawLines(float[] points, Paint paint);
+
+    void drawCircle(float cx, float cy, float radius, Paint paint);
+
+    void drawRect(RectF rect, Paint paint);
+
+    void drawArc(RectF oval, float startAngle, float sweepAngle, boolean useCenter, Paint paint);
+
+    void drawText(char[] text, int index, int count, float x, float y, Paint paint);
+
+    void drawBitmap(Bitmap bitmap, float left, float top, Paint paint);
+
+    void drawBitmap(Bitmap bitmap, Matrix matrix, Paint paint);
+
+    void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint);
+
+    float measureText(Paint paint, char[] text, int index, int count);
+
+    void getTextBounds(Paint paint, char[] text, int index, int count, Rect bounds);
+}
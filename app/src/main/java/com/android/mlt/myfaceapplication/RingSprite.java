@@ -0,0 +1,114 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * 预先栅格化的秒数圆环。
+ * <p>
+ * 完整的圆环只在尺寸或线宽变化时画进一张 ALPHA_8 位图，每帧按扫过的角度裁剪后贴图，
+ * 代替每帧带抗锯齿的 {@code drawArc} 描边。扇形由两个半边矩形的交集得到：
+ * 一个与坐标轴对齐，另一个绕圆心旋转到扫过的角度。颜色和透明度取自贴图画笔，
+ * 勿扰模式调暗不需要重新生成位图。
+ */
+final class RingSprite {
+
+    private Bitmap mBitmap;
+    // 位图在表盘上的位置
+    private float mLeft;
+    private float mTop;
+    private float mCenterX;
+    private float mCenterY;
+    // 圆环外接正方形的左右两半，位图的右半边
+    private final RectF mLeftHalf = new RectF();
+    private final RectF mRightHalf = new RectF();
+    private final Rect mRightSrc = new Rect();
+    private final RectF mRightDst = new RectF();
+
+    // 生成位图时的输入
+    private final RectF mOval = new RectF();
+    private float mStrokeWidth;
+
+    /**
+     * 按需重新生成位图
+     *
+     * @param oval        圆环中线的外接矩形
+     * @param strokeWidth 圆环线宽
+     */
+    void update(RectF oval, float strokeWidth) {
+        if (mBitmap != null && mOval.equals(oval) && mStrokeWidth == strokeWidth) {
+            return;
+        }
+        mOval.set(oval);
+        mStrokeWidth = strokeWidth;
+
+        // 四周各留 1 像素给抗锯齿边缘
+        float extent = strokeWidth / 2 + 1;
+        int left = (int) Math.floor(oval.left - extent);
+        int top = (int) Math.floor(oval.top - extent);
+        int width = (int) Math.ceil(oval.right + extent) - left;
+        int height = (int) Math.ceil(oval.bottom + extent) - top;
+        recycle();
+        if (oval.isEmpty() || width <= 0 || height <= 0) {
+            return;
+        }
+        mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+        mLeft = left;
+        mTop = top;
+        mCenterX = oval.centerX();
+        mCenterY = oval.centerY();
+        mLeftHalf.set(left, top, mCenterX, top + height);
+        mRightHalf.set(mCenterX, top, left + width, top + height);
+        int srcCenter = (int) Math.floor(mCenterX - left);
+        mRightSrc.set(srcCenter, 0, width, height);
+        mRightDst.set(left + srcCenter, top, left + width, top + height);
+
+        Paint ringPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        ringPaint.setStyle(Paint.Style.STROKE);
+        ringPaint.setStrokeWidth(strokeWidth);
+        Canvas canvas = new Canvas(mBitmap);
+        canvas.translate(-left, -top);
+        canvas.drawOval(oval, ringPaint);
+    }
+
+    /**
+     * 从 12 点顺时针绘制圆环的一段
+     *
+     * @param render  绘制命令
+     * @param degrees 扫过的角度 0 ~ 360
+     * @param paint   贴图画笔，决定圆环的颜色和透明度
+     */
+    void draw(RenderCommands render, float degrees, Paint paint) {
+        if (mBitmap == null || degrees <= 0) {
+            return;
+        }
+        if (degrees >= 360) {
+            render.drawBitmap(mBitmap, mLeft, mTop, paint);
+            return;
+        }
+        RectF half = mRightHalf;
+        if (degrees > 180) {
+            // 右半边完整，左半边裁剪
+            render.drawBitmap(mBitmap, mRightSrc, mRightDst, paint);
+            half = mLeftHalf;
+        }
+        // 左半边绕圆心转过 degrees 后覆盖 [degrees - 180, degrees]，与所在的半边取交集
+        render.save();
+        render.clipRect(half);
+        render.rotate(degrees, mCenterX, mCenterY);
+        render.clipRect(mLeftHalf);
+        render.rotate(-degrees, mCenterX, mCenterY);
+        render.drawBitmap(mBitmap, mLeft, mTop, paint);
+        render.restore();
+    }
+
+    void recycle() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+    }
+}
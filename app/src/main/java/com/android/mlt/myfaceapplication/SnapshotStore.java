@@ -0,0 +1,251 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 上一次交互模式画面中与时间无关部分的持久化快照。
+ * <p>
+ * 表盘不可见或销毁时把静态表盘图层压缩为 PNG，连同尺寸、样式版本、已排版的日期文字
+ * 及其日期写入应用私有目录。下次创建引擎时在单独的线程一次读入整个文件并解码，
+ * 不排在后台线程的几何和排版消息之前。首帧在实时图层和文字排版就绪前贴上表盘，
+ * 日期相同时绘制保存的日期文字，指针按当前时间实时绘制，跨分钟启动也能使用。
+ * 写入在后台线程，绘制线程只读取 volatile 引用。
+ */
+final class SnapshotStore {
+
+    private static final String TAG = "SnapshotStore";
+
+    /**
+     * 画面属性，尺寸和属性都一致时快照才可用
+     */
+    static final int FLAG_DIGITAL = 1;
+    static final int FLAG_MUTE = 1 << 1;
+
+    private static final int MAGIC = 0x57465331;
+    private static final int FORMAT_VERSION = 2;
+    // magic、格式版本、样式版本、宽、高、属性、日期编号、日期文字坐标和字符数，之后为文字
+    private static final int HEADER_BYTES = 6 * 4 + 8 + 3 * 4;
+    private static final int MAX_DATE_LENGTH = 64;
+
+    private final File mFile;
+    private final int mStyleVersion;
+    private final Handler mWorker;
+
+    private volatile Snapshot mLoaded;
+    // 已释放，之后读完的快照直接回收
+    private boolean mReleased;
+
+    /**
+     * @param file         快照文件
+     * @param styleVersion 样式版本，绘制代码变化后旧快照作废
+     * @param looper       写入快照的文件读写线程
+     */
+    SnapshotStore(File file, int styleVersion, Looper looper) {
+        mFile = file;
+        mStyleVersion = styleVersion;
+        mWorker = new Handler(looper);
+    }
+
+    /**
+     * 在单独的线程读取快照，立即返回
+     */
+    void load() {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Snapshot snapshot = read();
+                if (snapshot == null) {
+                    return;
+                }
+                synchronized (SnapshotStore.this) {
+                    if (!mReleased) {
+                        mLoaded = snapshot;
+                        return;
+                    }
+                }
+                snapshot.mDial.recycle();
+            }
+        }, "snapshot-load").start();
+    }
+
+    /**
+     * @return 已读取的快照，尚未读完或没有可用快照时为 null
+     */
+    Snapshot getLoaded() {
+        return mLoaded;
+    }
+
+    /**
+     * 实时图层就绪后释放读取的快照，只能在绘制线程调用
+     */
+    void release() {
+        Snapshot snapshot;
+        synchronized (this) {
+            mReleased = true;
+            snapshot = mLoaded;
+            mLoaded = null;
+        }
+        if (snapshot != null) {
+            snapshot.mDial.recycle();
+        }
+    }
+
+    /**
+     * 在后台线程压缩并写入静态表盘和日期文字，写完后回收位图
+     *
+     * @param dial    静态表盘图层的副本，调用后归本类所有
+     * @param flags   画面属性
+     * @param dateDay 日期文字对应的本地日期编号
+     * @param date    已排版的日期文字
+     */
+    void save(final Bitmap dial, final int flags, final long dateDay, TextLabel date) {
+        final char[] text = date.copyText();
+        final float x = date.getX();
+        final float y = date.getY();
+        mWorker.post(new Runnable() {
+            @Override
+            public void run() {
+                write(dial, flags, dateDay, text, x, y);
+                dial.recycle();
+            }
+        });
+    }
+
+    private Snapshot read() {
+        if (!mFile.isFile()) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) mFile.length()];
+        try (FileInputStream in = new FileInputStream(mFile)) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int count = in.read(bytes, offset, bytes.length - offset);
+                if (count < 0) {
+                    break;
+                }
+                offset += count;
+            }
+            if (offset != bytes.length) {
+                return null;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read snapshot", e);
+            return null;
+        }
+        if (bytes.length <= HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes, 0, HEADER_BYTES);
+        if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION
+                || header.getInt() != mStyleVersion) {
+            // 旧版本的快照不再可用
+            mFile.delete();
+            return null;
+        }
+        int width = header.getInt();
+        int height = header.getInt();
+        int flags = header.getInt();
+        long dateDay = header.getLong();
+        float dateX = header.getFloat();
+        float dateY = header.getFloat();
+        int dateLength = header.getInt();
+        int imageOffset = HEADER_BYTES + dateLength * 2;
+        if (dateLength < 0 || dateLength > MAX_DATE_LENGTH || imageOffset >= bytes.length) {
+            return null;
+        }
+        char[] date = new char[dateLength];
+        ByteBuffer.wrap(bytes, HEADER_BYTES, dateLength * 2).asCharBuffer().get(date);
+        Bitmap dial = BitmapFactory.decodeByteArray(bytes, imageOffset,
+                bytes.length - imageOffset);
+        if (dial == null || dial.getWidth() != width || dial.getHeight() != height) {
+            return null;
+        }
+        return new Snapshot(dial, flags, dateDay, date, dateX, dateY);
+    }
+
+    private void write(Bitmap dial, int flags, long dateDay, char[] date, float dateX,
+                       float dateY) {
+        int length = Math.min(date.length, MAX_DATE_LENGTH);
+        ByteArrayOutputStream data = new ByteArrayOutputStream(64 * 1024);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + length * 2);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(mStyleVersion)
+                .putInt(dial.getWidth()).putInt(dial.getHeight()).putInt(flags)
+                .putLong(dateDay).putFloat(dateX).putFloat(dateY).putInt(length);
+        header.asCharBuffer().put(date, 0, length);
+        data.write(header.array(), 0, header.capacity());
+        if (!dial.compress(Bitmap.CompressFormat.PNG, 100, data)) {
+            return;
+        }
+        // 先写临时文件再改名，写入中途退出不会留下损坏的快照
+        File temp = new File(mFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            data.writeTo(out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write snapshot", e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(mFile)) {
+            temp.delete();
+        }
+    }
+
+    /**
+     * 读取的快照
+     */
+    static final class Snapshot {
+        private final Bitmap mDial;
+        private final int mFlags;
+        private final long mDateDay;
+        private final char[] mDate;
+        private final float mDateX;
+        private final float mDateY;
+
+        Snapshot(Bitmap dial, int flags, long dateDay, char[] date, float dateX, float dateY) {
+            mDial = dial;
+            mFlags = flags;
+            mDateDay = dateDay;
+            mDate = date;
+            mDateX = dateX;
+            mDateY = dateY;
+        }
+
+        /**
+         * @return 静态表盘图层
+         */
+        Bitmap getDial() {
+            return mDial;
+        }
+
+        /**
+         * 按保存时的坐标绘制日期文字，日期不是当天时不绘制
+         *
+         * @param localDay 当前本地日期编号
+         */
+        void drawDate(RenderCommands render, Paint paint, long localDay) {
+            if (localDay == mDateDay && mDate.length > 0) {
+                render.drawText(mDate, 0, mDate.length, mDateX, mDateY, paint);
+            }
+        }
+
+        /**
+         * 快照是否与当前画面尺寸和属性一致
+         */
+        boolean matches(int width, int height, int flags) {
+            return mDial.getWidth() == width && mDial.getHeight() == height
+                    && mFlags == flags;
+        }
+    }
+}
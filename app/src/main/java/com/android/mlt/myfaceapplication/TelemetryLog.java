@@ -0,0 +1,269 @@
+package com.android.mlt.myfaceapplication;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 长期运行的绘制和耗电统计，写入应用私有目录的定长环形文件。
+ * <p>
+ * 主线程按 {@link #RECORD_INTERVAL_MS} 把各模式时长、帧数、绘制耗时、帧的触发来源和电量
+ * 汇总成一条 {@link TelemetryFormat} 记录，编码到预先分配的批次缓冲区；攒满
+ * {@link #BATCH_RECORDS} 条后交给后台线程用 {@link FileChannel} 一次写入。
+ * 绘制路径上只有计数，不编码也不写文件。保留约 7 天的记录，
+ * 拉取后用 {@link TelemetryDecoder} 转换为 CSV。
+ */
+final class TelemetryLog {
+
+    private static final String TAG = "TelemetryLog";
+
+    /**
+     * 表盘不可见时的模式
+     */
+    static final int MODE_HIDDEN = -1;
+
+    static final long RECORD_INTERVAL_MS = 5 * 60 * 1000L;
+    // 每 30 分钟写一次文件
+    private static final int BATCH_RECORDS = 6;
+    // 7 天
+    private static final int CAPACITY = (int) (7 * 24 * 60 * 60 * 1000L / RECORD_INTERVAL_MS);
+
+    private final File mFile;
+    private final Handler mWriter;
+
+    // 以下只在主线程访问
+    private final TelemetryFormat.Record mRecord = new TelemetryFormat.Record();
+    private long mRecordStartElapsed;
+    private int mMode = MODE_HIDDEN;
+    private long mModeSinceElapsed;
+    // 正在填充的批次
+    private ByteBuffer mFilling = ByteBuffer.allocate(BATCH_RECORDS * TelemetryFormat.RECORD_BYTES);
+
+    // 两个批次缓冲区交替使用，mSpare 为空时后台线程仍在写上一批
+    private final Object mLock = new Object();
+    private ByteBuffer mSpare = ByteBuffer.allocate(BATCH_RECORDS * TelemetryFormat.RECORD_BYTES);
+    private ByteBuffer mPending;
+
+    // 以下只在后台线程访问
+    private final ByteBuffer mHeader = ByteBuffer.allocate(TelemetryFormat.HEADER_BYTES);
+    private RandomAccessFile mRandomAccessFile;
+    private FileChannel mChannel;
+    private long mWritten;
+
+    private final Runnable mWriteTask = new Runnable() {
+        @Override
+        public void run() {
+            ByteBuffer batch;
+            synchronized (mLock) {
+                batch = mPending;
+                mPending = null;
+            }
+            if (batch == null) {
+                return;
+            }
+            write(batch);
+            batch.clear();
+            synchronized (mLock) {
+                mSpare = batch;
+            }
+        }
+    };
+
+    private final Runnable mCloseTask = new Runnable() {
+        @Override
+        public void run() {
+            closeChannel();
+        }
+    };
+
+    /**
+     * @param file   环形文件
+     * @param looper 写文件的线程
+     */
+    TelemetryLog(File file, Looper looper) {
+        mFile = file;
+        mWriter = new Handler(looper);
+    }
+
+    /**
+     * 开始第一个区间
+     */
+    void start(long wallMs, long elapsedMs) {
+        mRecord.reset(wallMs);
+        mRecordStartElapsed = elapsedMs;
+        mModeSinceElapsed = elapsedMs;
+    }
+
+    /**
+     * 可见性、微光或勿扰状态变化
+     *
+     * @param mode {@link TelemetryFormat} 中的模式，或 {@link #MODE_HIDDEN}
+     */
+    void setMode(int mode, long elapsedMs) {
+        accumulateModeTime(elapsedMs);
+        mMode = mode;
+    }
+
+    /**
+     * 记录一帧，在绘制线程调用
+     *
+     * @param sources   本帧合并的 {@code TickScheduler.SOURCE_*}
+     * @param drawNanos onDraw 耗时
+     */
+    void onFrame(int sources, long drawNanos) {
+        TelemetryFormat.Record record = mRecord;
+        int micros = (int) (drawNanos / 1000);
+        if (mMode != MODE_HIDDEN) {
+            record.frames[mMode]++;
+            record.drawMicros[mMode] += micros;
+        }
+        if (micros > record.maxDrawMicros) {
+            record.maxDrawMicros = micros;
+        }
+        while (sources != 0) {
+            int bit = Integer.numberOfTrailingZeros(sources);
+            if (bit < TelemetryFormat.SOURCE_COUNT) {
+                record.sourceFrames[bit]++;
+            }
+            sources &= sources - 1;
+        }
+    }
+
+    /**
+     * 区间结束时结束当前记录，批次写满时交给后台线程。在主线程调用，不在绘制路径上
+     */
+    void update(FrameModel model, long wallMs, long elapsedMs) {
+        if (elapsedMs - mRecordStartElapsed >= RECORD_INTERVAL_MS) {
+            finishRecord(model, wallMs, elapsedMs);
+            if (!mFilling.hasRemaining()) {
+                submit();
+            }
+        }
+    }
+
+    /**
+     * 写入未满区间和未满批次并关闭文件，引擎销毁时调用，之后不再使用
+     */
+    void close(FrameModel model, long wallMs, long elapsedMs) {
+        if (elapsedMs > mRecordStartElapsed) {
+            finishRecord(model, wallMs, elapsedMs);
+        }
+        if (mFilling.position() > 0) {
+            submit();
+        }
+        mWriter.post(mCloseTask);
+    }
+
+    private void accumulateModeTime(long elapsedMs) {
+        if (mMode != MODE_HIDDEN) {
+            mRecord.modeMs[mMode] += (int) (elapsedMs - mModeSinceElapsed);
+        }
+        mModeSinceElapsed = elapsedMs;
+    }
+
+    private void finishRecord(FrameModel model, long wallMs, long elapsedMs) {
+        accumulateModeTime(elapsedMs);
+        TelemetryFormat.Record record = mRecord;
+        record.durationMs = (int) (elapsedMs - mRecordStartElapsed);
+        record.batteryPercent = model.getBatteryPercent();
+        record.charging = model.isCharging();
+        record.temperatureTenths = model.getBatteryTemperature();
+        record.write(mFilling);
+        record.reset(wallMs);
+        mRecordStartElapsed = elapsedMs;
+    }
+
+    /**
+     * 交换批次缓冲区，后台线程仍在写上一批时丢弃这一批
+     */
+    private void submit() {
+        ByteBuffer batch = mFilling;
+        synchronized (mLock) {
+            if (mSpare == null) {
+                Log.w(TAG, "Writer busy, dropping " + batch.position()
+                        / TelemetryFormat.RECORD_BYTES + " records");
+                batch.clear();
+                return;
+            }
+            mFilling = mSpare;
+            mSpare = null;
+            batch.flip();
+            mPending = batch;
+        }
+        mWriter.post(mWriteTask);
+    }
+
+    private void write(ByteBuffer batch) {
+        try {
+            FileChannel channel = openChannel();
+            while (batch.hasRemaining()) {
+                // 一次写到环的末尾，绕回后再写剩余部分
+                int slot = (int) (mWritten % CAPACITY);
+                int records = Math.min(batch.remaining() / TelemetryFormat.RECORD_BYTES,
+                        CAPACITY - slot);
+                int limit = batch.limit();
+                batch.limit(batch.position() + records * TelemetryFormat.RECORD_BYTES);
+                long position = TelemetryFormat.slotOffset(mWritten, CAPACITY);
+                while (batch.hasRemaining()) {
+                    position += channel.write(batch, position);
+                }
+                batch.limit(limit);
+                mWritten += records;
+            }
+            mHeader.clear();
+            TelemetryFormat.writeHeader(mHeader, CAPACITY, mWritten);
+            mHeader.flip();
+            while (mHeader.hasRemaining()) {
+                channel.write(mHeader, mHeader.position());
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write telemetry", e);
+            closeChannel();
+        }
+    }
+
+    /**
+     * 打开文件并读取已写入的记录数，格式或容量不一致时从头开始
+     */
+    private FileChannel openChannel() throws IOException {
+        if (mChannel != null) {
+            return mChannel;
+        }
+        mRandomAccessFile = new RandomAccessFile(mFile, "rw");
+        mChannel = mRandomAccessFile.getChannel();
+        mWritten = 0;
+        mHeader.clear();
+        if (mChannel.read(mHeader, 0) == TelemetryFormat.HEADER_BYTES) {
+            mHeader.flip();
+            if (mHeader.getInt() == TelemetryFormat.MAGIC
+                    && mHeader.getShort() == TelemetryFormat.VERSION
+                    && mHeader.getShort() == TelemetryFormat.RECORD_BYTES
+                    && mHeader.getInt() == CAPACITY) {
+                mWritten = Math.max(0, mHeader.getLong());
+            }
+        }
+        if (mWritten == 0) {
+            mChannel.truncate(0);
+        }
+        return mChannel;
+    }
+
+    private void closeChannel() {
+        if (mRandomAccessFile == null) {
+            return;
+        }
+        try {
+            mRandomAccessFile.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close telemetry file", e);
+        }
+        mRandomAccessFile = null;
+        mChannel = null;
+    }
+}
@@ -0,0 +1,192 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+import java.util.Arrays;
+
+/**
+ * 预先排版的文字标签。
+ * <p>
+ * 缓存文字内容、测量宽度、文字边界和绘制坐标。只有内容、画笔字号/字体、
+ * 表盘尺寸或锚点变化时才重新测量，其余帧直接绘制。
+ */
+final class TextLabel {
+
+    /**
+     * 水平居中于锚点
+     */
+    static final int ALIGN_CENTER = 0;
+    /**
+     * 左边缘对齐锚点
+     */
+    static final int ALIGN_LEFT = 1;
+    /**
+     * 右边缘对齐锚点
+     */
+    static final int ALIGN_RIGHT = 2;
+    /**
+     * 文字边界垂直居中于锚点，否则锚点即基线
+     */
+    static final int CENTER_VERTICAL = 4;
+
+    private final char[] mText;
+    private int mLength;
+
+    // 排版结果
+    private float mWidth;
+    private final Rect mBounds = new Rect();
+    private float mX;
+    private float mY;
+
+    // 排版输入，任意一项变化都需重新测量
+    private boolean mLaidOut;
+    private float mTextSize;
+    private Typeface mTypeface;
+    private int mSurfaceWidth;
+    private int mSurfaceHeight;
+    private float mAnchorX;
+    private float mAnchorY;
+    private int mGravity;
+
+    TextLabel(int capacity) {
+        mText = new char[capacity];
+    }
+
+    /**
+     * 设置文字内容，内容未变化时保留排版结果
+     *
+     * @return 内容是否变化
+     */
+    boolean setText(char[] text, int length) {
+        length = Math.min(length, mText.length);
+        if (length == mLength) {
+            boolean same = true;
+            for (int i = 0; i < length; i++) {
+                if (mText[i] != text[i]) {
+                    same = false;
+                    break;
+                }
+            }
+            if (same) {
+                return false;
+            }
+        }
+        System.arraycopy(text, 0, mText, 0, length);
+        mLength = length;
+        mLaidOut = false;
+        return true;
+    }
+
+    /**
+     * @see #setText(char[], int)
+     */
+    boolean setText(CharSequence text) {
+        int length = Math.min(text.length(), mText.length);
+        if (length == mLength) {
+            boolean same = true;
+            for (int i = 0; i < length; i++) {
+                if (mText[i] != text.charAt(i)) {
+                    same = false;
+                    break;
+                }
+            }
+            if (same) {
+                return false;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            mText[i] = text.charAt(i);
+        }
+        mLength = length;
+        mLaidOut = false;
+        return true;
+    }
+
+    /**
+     * 按需测量并计算绘制坐标
+     *
+     * @param render        绘制命令，测量经由它完成以便记录
+     * @param paint         绘制使用的画笔
+     * @param surfaceWidth  表盘宽
+     * @param surfaceHeight 表盘高
+     * @param anchorX       水平锚点
+     * @param anchorY       垂直锚点
+     * @param gravity       对齐方式
+     */
+    void layout(RenderCommands render, Paint paint, int surfaceWidth, int surfaceHeight,
+                float anchorX, float anchorY, int gravity) {
+        float textSize = paint.getTextSize();
+        Typeface typeface = paint.getTypeface();
+        if (mLaidOut
+                && mTextSize == textSize && mTypeface == typeface
+                && mSurfaceWidth == surfaceWidth && mSurfaceHeight == surfaceHeight
+                && mAnchorX == anchorX && mAnchorY == anchorY && mGravity == gravity) {
+            return;
+        }
+        mTextSize = textSize;
+        mTypeface = typeface;
+        mSurfaceWidth = surfaceWidth;
+        mSurfaceHeight = surfaceHeight;
+        mAnchorX = anchorX;
+        mAnchorY = anchorY;
+        mGravity = gravity;
+
+        mWidth = render.measureText(paint, mText, 0, mLength);
+        render.getTextBounds(paint, mText, 0, mLength, mBounds);
+        switch (gravity & 3) {
+            case ALIGN_LEFT:
+                mX = anchorX;
+                break;
+            case ALIGN_RIGHT:
+                mX = anchorX - mWidth;
+                break;
+            default:
+                mX = anchorX - mWidth / 2;
+                break;
+        }
+        mY = (gravity & CENTER_VERTICAL) != 0 ? anchorY + mBounds.height() / 2f : anchorY;
+        mLaidOut = true;
+    }
+
+    void draw(RenderCommands render, Paint paint) {
+        if (mLength > 0) {
+            render.drawText(mText, 0, mLength, mX, mY, paint);
+        }
+    }
+
+    /**
+     * 丢弃排版结果，下次 {@link #layout} 时重新测量
+     */
+    void evict() {
+        mLaidOut = false;
+    }
+
+    int length() {
+        return mLength;
+    }
+
+    /**
+     * @return 文字内容的副本
+     */
+    char[] copyText() {
+        return Arrays.copyOf(mText, mLength);
+    }
+
+    float getWidth() {
+        return mWidth;
+    }
+
+    Rect getBounds() {
+        return mBounds;
+    }
+
+    float getX() {
+        return mX;
+    }
+
+    float getY() {
+        return mY;
+    }
+}
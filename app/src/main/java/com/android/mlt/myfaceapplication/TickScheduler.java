@@ -0,0 +1,192 @@
+package com.android.mlt.myfaceapplication;
+
+/**
+ * 重绘请求和秒针定时的统一调度。
+ * <p>
+ * 所有重绘请求都经过 {@link #requestFrame(int)}，同一帧内来自多个来源的请求合并为一次
+ * {@link Host#postFrame()}。秒针定时按墙钟帧边界计算，再换算成单调时钟交给
+ * {@link Host#scheduleTick(long)}，不受墙钟调整影响；定时触发时比较墙钟和开机时钟的
+ * 延迟，区分休眠、长时间 GC 导致的漏帧和系统时间被修改，计入 {@link FrameStats}。
+ * <p>
+ * 不依赖 Android 类，时钟和宿主都通过接口注入，可以在 JVM 上用假时钟确定性地驱动。
+ * 只能在主线程调用。
+ */
+final class TickScheduler {
+
+    /**
+     * 时钟来源
+     */
+    interface Clock {
+        /**
+         * @return 单调时钟，深度休眠时暂停，用于定时
+         */
+        long uptimeMillis();
+
+        /**
+         * @return 单调时钟，休眠时继续计时，用于检测漏帧
+         */
+        long elapsedRealtime();
+
+        /**
+         * @return 墙钟
+         */
+        long currentTimeMillis();
+    }
+
+    /**
+     * 调度结果的执行者
+     */
+    interface Host {
+        /**
+         * 请求绘制一帧
+         */
+        void postFrame();
+
+        /**
+         * 在给定单调时钟时刻调用 {@link #onTick()}，替换之前的定时
+         */
+        void scheduleTick(long uptimeMillis);
+
+        void cancelTick();
+    }
+
+    /**
+     * 重绘请求来源，可按位组合。位序号即 {@link TelemetryFormat#SOURCE_NAMES} 的下标。
+     * 快照更新按原因区分：分钟更新、时区（含系统时间和语言）变化，其余内容变化为 MODEL
+     */
+    static final int SOURCE_TIMER = 1;
+    static final int SOURCE_MODEL = 1 << 1;
+    static final int SOURCE_TAP = 1 << 2;
+    static final int SOURCE_INTERRUPTION = 1 << 3;
+    static final int SOURCE_VISIBILITY = 1 << 4;
+    static final int SOURCE_COMPLICATION = 1 << 5;
+    static final int SOURCE_TIME_TICK = 1 << 6;
+    static final int SOURCE_TIME_ZONE = 1 << 7;
+    static final int SOURCE_TRANSITION = 1 << 8;
+
+    // 墙钟与开机时钟的延迟相差超过该值视为系统时间被修改
+    private static final long CLOCK_JUMP_MS = 1000;
+    // 请求后超过该时间仍未绘制，视为请求已丢失（例如期间表面被销毁），再次请求
+    static final long FRAME_TIMEOUT_MS = 1000;
+
+    private final Clock mClock;
+    private final Host mHost;
+    private final FrameRateScheduler mFrameRate;
+    private final FrameStats mStats;
+
+    private boolean mRunning;
+    // 已请求但尚未绘制
+    private boolean mFramePending;
+    private long mFramePostedElapsedMs;
+    private int mPendingSources;
+
+    // 下一次定时对应的墙钟帧边界和开机时钟
+    private long mExpectedWallMs;
+    private long mExpectedElapsedMs;
+
+    TickScheduler(Clock clock, Host host, FrameRateScheduler frameRate, FrameStats stats) {
+        mClock = clock;
+        mHost = host;
+        mFrameRate = frameRate;
+        mStats = stats;
+    }
+
+    /**
+     * 请求重绘，已有未完成的请求时只记录来源
+     *
+     * @param source 请求来源
+     */
+    void requestFrame(int source) {
+        mPendingSources |= source;
+        // 休眠时继续计时，休眠前丢失的请求醒来后不会一直被当作未完成
+        long now = mClock.elapsedRealtime();
+        if (mFramePending && now - mFramePostedElapsedMs < FRAME_TIMEOUT_MS) {
+            mStats.countCoalescedRequest();
+            return;
+        }
+        mFramePending = true;
+        mFramePostedElapsedMs = now;
+        mHost.postFrame();
+    }
+
+    /**
+     * 可见性、表面或微光模式变化后之前的请求不一定会绘制，清除未完成标记，
+     * 之后的请求重新交给宿主。已记录的来源并入下一帧
+     */
+    void resetPendingFrame() {
+        mFramePending = false;
+    }
+
+    /**
+     * 开始绘制一帧，之前的请求全部完成
+     *
+     * @return 本帧合并的请求来源
+     */
+    int onFrame() {
+        int sources = mPendingSources;
+        mPendingSources = 0;
+        mFramePending = false;
+        return sources;
+    }
+
+    /**
+     * 开始或停止秒针定时
+     */
+    void setRunning(boolean running) {
+        if (running == mRunning) {
+            return;
+        }
+        mRunning = running;
+        if (running) {
+            requestFrame(SOURCE_TIMER);
+            scheduleNext();
+        } else {
+            mHost.cancelTick();
+        }
+    }
+
+    boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * 帧率变化后按新的帧边界重新定时
+     */
+    void reschedule() {
+        if (mRunning) {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * 定时到达，由宿主在 {@link Host#scheduleTick(long)} 给定的时刻调用
+     */
+    void onTick() {
+        if (!mRunning) {
+            return;
+        }
+        long lateElapsed = mClock.elapsedRealtime() - mExpectedElapsedMs;
+        long lateWall = mClock.currentTimeMillis() - mExpectedWallMs;
+        long periodMs = 1000 / mFrameRate.getFrameRate();
+        if (Math.abs(lateWall - lateElapsed) > CLOCK_JUMP_MS) {
+            // 系统时间被修改，不计为漏帧，下面按新的墙钟重新对齐
+            mStats.countClockJump();
+        } else {
+            mStats.recordTickLate(lateElapsed, lateElapsed >= periodMs ? lateElapsed / periodMs : 0);
+        }
+        requestFrame(SOURCE_TIMER);
+        scheduleNext();
+    }
+
+    /**
+     * 以墙钟帧边界为锚点，换算成单调时钟定时
+     */
+    private void scheduleNext() {
+        long wall = mClock.currentTimeMillis();
+        long delay = mFrameRate.nextFrameDelay(wall);
+        mExpectedWallMs = wall + delay;
+        mExpectedElapsedMs = mClock.elapsedRealtime() + delay;
+        mHost.scheduleTick(mClock.uptimeMillis() + delay);
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Paint;
+
+/**
+ * 微光模式回到交互模式的过渡动画。
+ * <p>
+ * 表盘图层亮度和分钟图层（指针、文字）透明度逐渐升高，秒针在后半段淡入。各关键帧的贴图
+ * 画笔预先生成，动画期间不修改画笔、不重绘缓存图层。每帧按实际时间选取关键帧，
+ * 绘制后再请求下一帧，不使用定时器；某帧超出预算时下一帧直接跳过中间的关键帧，
+ * 动画不会被拉长，连续超出预算则立即结束。进入微光模式时立即取消。只在主线程使用。
+ */
+final class TransitionAnimator {
+
+    static final long DURATION_MS = 300;
+    // 约每个垂直同步周期一个关键帧
+    private static final int KEYFRAME_COUNT = 18;
+    // 单帧绘制预算，连续超出的帧数达到上限时结束动画
+    private static final long FRAME_BUDGET_NANOS = 12_000_000L;
+    private static final int MAX_OVERRUNS = 2;
+
+    private final Paint[] mDialPaints = new Paint[KEYFRAME_COUNT];
+    private final Paint[] mContentPaints = new Paint[KEYFRAME_COUNT];
+    private final Paint[] mSecondPaints = new Paint[KEYFRAME_COUNT];
+
+    private boolean mRunning;
+    private long mStartMs;
+    private int mKeyframe;
+    private int mOverruns;
+
+    TransitionAnimator() {
+        for (int i = 0; i < KEYFRAME_COUNT; i++) {
+            float t = (i + 1) / (float) KEYFRAME_COUNT;
+            // 先快后慢
+            float eased = 1 - (1 - t) * (1 - t);
+            mDialPaints[i] = bitmapPaint(eased);
+            mContentPaints[i] = bitmapPaint(eased);
+            // 秒针在后半段淡入
+            mSecondPaints[i] = bitmapPaint(Math.max(0, t * 2 - 1));
+        }
+    }
+
+    /**
+     * 开始过渡，已在进行时从头开始
+     *
+     * @param nowMs 单调时钟
+     */
+    void start(long nowMs) {
+        mRunning = true;
+        mStartMs = nowMs;
+        mKeyframe = 0;
+        mOverruns = 0;
+    }
+
+    /**
+     * 立即结束，之后的帧按正常状态绘制
+     */
+    void cancel() {
+        mRunning = false;
+    }
+
+    boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * 按时间选取本帧的关键帧
+     *
+     * @param nowMs 单调时钟
+     * @return 本帧是否按过渡状态绘制，动画已结束时为 false
+     */
+    boolean beginFrame(long nowMs) {
+        if (!mRunning) {
+            return false;
+        }
+        long elapsed = nowMs - mStartMs;
+        int keyframe = (int) (elapsed * KEYFRAME_COUNT / DURATION_MS);
+        if (elapsed < 0 || keyframe >= KEYFRAME_COUNT) {
+            mRunning = false;
+            return false;
+        }
+        mKeyframe = keyframe;
+        return true;
+    }
+
+    /**
+     * 记录过渡帧的绘制耗时。无论是否结束都应再请求一帧，动画结束后的一帧恢复正常状态
+     */
+    void endFrame(long drawNanos) {
+        if (drawNanos <= FRAME_BUDGET_NANOS) {
+            mOverruns = 0;
+        } else if (++mOverruns >= MAX_OVERRUNS) {
+            mRunning = false;
+        }
+    }
+
+    /**
+     * @return 表盘图层的贴图画笔，绘制在黑色背景上
+     */
+    Paint getDialPaint() {
+        return mDialPaints[mKeyframe];
+    }
+
+    /**
+     * @return 分钟图层（时针、分针和文字）的贴图画笔
+     */
+    Paint getContentPaint() {
+        return mContentPaints[mKeyframe];
+    }
+
+    /**
+     * @return 秒针的贴图画笔，不在过渡中时为 null
+     */
+    Paint getSecondPaint() {
+        return mRunning ? mSecondPaints[mKeyframe] : null;
+    }
+
+    private static Paint bitmapPaint(float alpha) {
+        Paint paint = new Paint();
+        paint.setFilterBitmap(true);
+        paint.setAntiAlias(true);
+        paint.setAlpha(Math.round(alpha * 255));
+        return paint;
+    }
+}
@@ -0,0 +1,76 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 交互模式稳定状态下每帧绘制不分配对象：预热后连续绘制几千帧，
+ * 用当前线程的分配字节数检查，绘制时间跨过多个整秒。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 29)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class DrawAllocationTest {
+
+    private static final int SIZE = 454;
+    // 预热到即时编译稳定，之前的编译和去优化会带来零星分配
+    private static final int WARMUP_FRAMES = 20000;
+    private static final int BATCH_FRAMES = 1000;
+    private static final int MIN_FRAMES = 5000;
+    private static final long MIN_DURATION_MS = 2500;
+
+    private EngineDriver mDriver;
+
+    @Before
+    public void setUp() {
+        mDriver = new EngineDriver();
+        mDriver.setBattery(80, false, 250);
+        mDriver.setSurface(SIZE, SIZE, true, 0);
+        mDriver.setVisible(true);
+        // 等后台线程排版并发布快照
+        mDriver.idle();
+    }
+
+    @After
+    public void tearDown() {
+        mDriver.destroy();
+    }
+
+    @Test
+    public void steadyStateFramesDoNotAllocate() {
+        Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        drawFrames(canvas, WARMUP_FRAMES);
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long end = System.currentTimeMillis() + MIN_DURATION_MS;
+        int frames = 0;
+        long before = threads.getThreadAllocatedBytes(thread);
+        while (frames < MIN_FRAMES || System.currentTimeMillis() < end) {
+            drawFrames(canvas, BATCH_FRAMES);
+            frames += BATCH_FRAMES;
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertEquals("bytes allocated over " + frames + " frames", 0, allocated);
+    }
+
+    private void drawFrames(Canvas canvas, int frames) {
+        for (int i = 0; i < frames; i++) {
+            mDriver.draw(canvas);
+        }
+    }
+}
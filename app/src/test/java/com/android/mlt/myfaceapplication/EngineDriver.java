@@ -0,0 +1,125 @@
+package com.android.mlt.myfaceapplication;
+
+import android.content.Intent;
+import android.graphics.Canvas;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.os.BatteryManager;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.wearable.watchface.CanvasWatchFaceService;
+import android.view.SurfaceHolder;
+import android.view.WindowInsets;
+
+import org.robolectric.Robolectric;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 在 Robolectric 中创建表盘服务和引擎，按系统的顺序调用生命周期回调。
+ * <p>
+ * 只处理主线程和本引擎创建的后台线程的消息，之前的测试留下的已退出线程不受影响。
+ */
+final class EngineDriver {
+
+    // 后台线程发布快照后主线程可能再次通知后台线程，处理几轮直到稳定
+    private static final int IDLE_ROUNDS = 3;
+
+    private final MyWatchFace mService;
+    private final CanvasWatchFaceService.Engine mEngine;
+    private final SurfaceHolder mHolder = mock(SurfaceHolder.class);
+    private final Rect mBounds = new Rect();
+    private final List<Looper> mLoopers = new ArrayList<>();
+
+    EngineDriver() {
+        mService = Robolectric.setupService(MyWatchFace.class);
+        Set<Looper> existing = new HashSet<>(ShadowLooper.getAllLoopers());
+        mEngine = mService.onCreateEngine();
+        mEngine.onCreate(mHolder);
+        for (Looper looper : ShadowLooper.getAllLoopers()) {
+            if (looper != Looper.getMainLooper() && !existing.contains(looper)) {
+                mLoopers.add(looper);
+            }
+        }
+    }
+
+    CanvasWatchFaceService.Engine getEngine() {
+        return mEngine;
+    }
+
+    /**
+     * 发送粘性电池广播，后台线程开始时读取
+     *
+     * @param temperatureTenths 电池温度，单位 0.1 摄氏度
+     */
+    void setBattery(int percent, boolean charging, int temperatureTenths) {
+        Intent intent = new Intent(Intent.ACTION_BATTERY_CHANGED)
+                .putExtra(BatteryManager.EXTRA_LEVEL, percent)
+                .putExtra(BatteryManager.EXTRA_SCALE, 100)
+                .putExtra(BatteryManager.EXTRA_STATUS, charging
+                        ? BatteryManager.BATTERY_STATUS_CHARGING
+                        : BatteryManager.BATTERY_STATUS_DISCHARGING)
+                .putExtra(BatteryManager.EXTRA_TEMPERATURE, temperatureTenths);
+        mService.sendStickyBroadcast(intent);
+    }
+
+    /**
+     * 屏幕形状和底部缺口，随后设置表面尺寸
+     */
+    void setSurface(int width, int height, boolean round, int bottomInset) {
+        WindowInsets insets = mock(WindowInsets.class);
+        when(insets.isRound()).thenReturn(round);
+        when(insets.getSystemWindowInsetBottom()).thenReturn(bottomInset);
+        mEngine.onApplyWindowInsets(insets);
+        mEngine.onSurfaceChanged(mHolder, PixelFormat.RGBA_8888, width, height);
+        mBounds.set(0, 0, width, height);
+    }
+
+    /**
+     * 与 WallpaperService 相同，先记录可见状态再回调，引擎中 isVisible() 与回调一致
+     */
+    void setVisible(boolean visible) {
+        ReflectionHelpers.setField(mEngine, "mReportedVisible", visible);
+        mEngine.onVisibilityChanged(visible);
+    }
+
+    /**
+     * 处理主线程和本引擎后台线程中已到期的消息
+     */
+    void idle() {
+        for (int i = 0; i < IDLE_ROUNDS; i++) {
+            for (Looper looper : mLoopers) {
+                Shadow.<ShadowLooper>extract(looper).idle();
+            }
+            ShadowLooper.idleMainLooper();
+        }
+    }
+
+    /**
+     * 把测试时钟拨到指定时间并处理到期的消息
+     */
+    void advanceTo(long timeMs) {
+        SystemClock.setCurrentTimeMillis(timeMs);
+        idle();
+    }
+
+    /**
+     * 与系统相同，经 onDraw 画一帧
+     */
+    void draw(Canvas canvas) {
+        mEngine.onDraw(canvas, mBounds);
+    }
+
+    void destroy() {
+        mEngine.onDestroy();
+    }
+}
@@ -0,0 +1,236 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 离屏渲染的基准图检查。
+ * <p>
+ * 按场景把表盘引擎驱动到对应的尺寸、屏幕形状和显示状态，墙钟固定，经 onDraw 渲染到位图，
+ * 与基准 PNG 逐像素比较（允许少量误差），并记录绘制耗时，超过预算即判为失败。
+ * 记录模式直接覆盖基准图目录。
+ */
+final class RenderHarness {
+
+    /**
+     * 按场景驱动表盘引擎
+     */
+    interface Renderer {
+        /**
+         * 创建引擎并经生命周期回调进入场景的状态，墙钟停在 {@link #FIXED_TIME_MS}
+         */
+        void prepare(Scenario scenario);
+
+        /**
+         * 与系统相同，经 onDraw 画一帧
+         */
+        void drawFrame(Canvas canvas);
+    }
+
+    /**
+     * 显示状态：交互、微光、勿扰、低位微光，以及数字表盘、微光回到交互的过渡中途、
+     * 低电量降级和最低档位
+     */
+    static final int MODE_INTERACTIVE = 0;
+    static final int MODE_AMBIENT = 1;
+    static final int MODE_MUTE = 2;
+    static final int MODE_LOW_BIT = 3;
+    static final int MODE_DIGITAL = 4;
+    static final int MODE_TRANSITION = 5;
+    static final int MODE_REDUCED = 6;
+    static final int MODE_MINIMAL = 7;
+    private static final String[] MODE_NAMES = {"interactive", "ambient", "mute", "lowbit",
+            "digital", "transition", "reduced", "minimal"};
+    // 每种屏幕都检查的状态
+    private static final int BASE_MODE_COUNT = 4;
+
+    // 2020-01-01 10:10:30 UTC，指针不重叠
+    static final long FIXED_TIME_MS = 1577873430000L;
+
+    // 每个颜色通道允许的差值，以及允许超出的像素比例
+    private static final int CHANNEL_TOLERANCE = 8;
+    private static final float MAX_MISMATCH_FRACTION = 0.001f;
+
+    // 计时前预热和计时的帧数，取中位数；第一帧重绘缓存图层，之后只贴图层和秒针
+    private static final int WARMUP_FRAMES = 2;
+    private static final int TIMED_FRAMES = 5;
+
+    private final File mGoldenDir;
+    private final long mBudgetNanos;
+
+    /**
+     * @param goldenDir 基准图目录，文件名为场景名
+     * @param budgetMs  单帧绘制耗时预算
+     */
+    RenderHarness(File goldenDir, long budgetMs) {
+        mGoldenDir = goldenDir;
+        mBudgetNanos = budgetMs * 1_000_000L;
+    }
+
+    /**
+     * @return 圆形 320、360、454，方形 320、400，底部缺口 360 各四种基本状态，
+     * 圆形 454 另加其余状态
+     */
+    static List<Scenario> defaultScenarios() {
+        int[][] screens = {
+                // 宽, 高, 圆形, 底部缺口
+                {320, 320, 1, 0}, {360, 360, 1, 0}, {454, 454, 1, 0},
+                {320, 320, 0, 0}, {400, 400, 0, 0}, {360, 360, 1, 30}
+        };
+        List<Scenario> scenarios = new ArrayList<>();
+        for (int[] screen : screens) {
+            for (int mode = 0; mode < BASE_MODE_COUNT; mode++) {
+                scenarios.add(new Scenario(screen[0], screen[1], screen[2] != 0, screen[3], mode));
+            }
+        }
+        for (int mode = BASE_MODE_COUNT; mode < MODE_NAMES.length; mode++) {
+            scenarios.add(new Scenario(454, 454, true, 0, mode));
+        }
+        return scenarios;
+    }
+
+    /**
+     * 渲染一个场景并比较或记录基准图
+     *
+     * @param record 记录模式，写入新的基准图而不比较
+     * @return 场景通过
+     */
+    boolean run(Scenario scenario, Renderer renderer, boolean record, PrintWriter report) {
+        renderer.prepare(scenario);
+        Bitmap bitmap = Bitmap.createBitmap(scenario.mWidth, scenario.mHeight,
+                Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        // 测试中墙钟和单调时钟都是固定的，按线程 CPU 时间计时
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long[] samples = new long[TIMED_FRAMES];
+        for (int i = 0; i < WARMUP_FRAMES + TIMED_FRAMES; i++) {
+            bitmap.eraseColor(Color.TRANSPARENT);
+            long start = threads.getCurrentThreadCpuTime();
+            renderer.drawFrame(canvas);
+            if (i >= WARMUP_FRAMES) {
+                samples[i - WARMUP_FRAMES] = threads.getCurrentThreadCpuTime() - start;
+            }
+        }
+        Arrays.sort(samples);
+        long median = samples[TIMED_FRAMES / 2];
+
+        boolean passed = true;
+        String result;
+        float mismatch = 0;
+        if (record) {
+            result = write(scenario, bitmap) ? "recorded" : "write failed";
+        } else {
+            Bitmap golden = readGolden(scenario);
+            if (golden == null) {
+                result = "no golden";
+                passed = false;
+            } else {
+                mismatch = compare(bitmap, golden);
+                golden.recycle();
+                passed = mismatch <= MAX_MISMATCH_FRACTION;
+                result = passed ? "ok" : "DIFF";
+            }
+        }
+        if (median > mBudgetNanos) {
+            result += " OVER BUDGET";
+            passed = false;
+        }
+        report.println(String.format(Locale.US, "%-28s %8dus %9.3f%%  %s  budget %dus",
+                scenario.getName(), median / 1000, mismatch * 100, result, mBudgetNanos / 1000));
+        bitmap.recycle();
+        return passed;
+    }
+
+    /**
+     * @return 超出误差的像素比例，尺寸不同时为 1
+     */
+    private static float compare(Bitmap actual, Bitmap golden) {
+        int width = actual.getWidth();
+        int height = actual.getHeight();
+        if (golden.getWidth() != width || golden.getHeight() != height) {
+            return 1;
+        }
+        int[] a = new int[width];
+        int[] b = new int[width];
+        int mismatched = 0;
+        for (int y = 0; y < height; y++) {
+            actual.getPixels(a, 0, width, 0, y, width, 1);
+            golden.getPixels(b, 0, width, 0, y, width, 1);
+            for (int x = 0; x < width; x++) {
+                if (channelDiff(a[x], b[x]) > CHANNEL_TOLERANCE) {
+                    mismatched++;
+                }
+            }
+        }
+        return mismatched / (float) (width * height);
+    }
+
+    private static int channelDiff(int c1, int c2) {
+        int diff = Math.abs(Color.alpha(c1) - Color.alpha(c2));
+        diff = Math.max(diff, Math.abs(Color.red(c1) - Color.red(c2)));
+        diff = Math.max(diff, Math.abs(Color.green(c1) - Color.green(c2)));
+        return Math.max(diff, Math.abs(Color.blue(c1) - Color.blue(c2)));
+    }
+
+    private Bitmap readGolden(Scenario scenario) {
+        File file = new File(mGoldenDir, scenario.getName() + ".png");
+        return file.isFile() ? BitmapFactory.decodeFile(file.getPath()) : null;
+    }
+
+    private boolean write(Scenario scenario, Bitmap bitmap) {
+        if (!mGoldenDir.isDirectory() && !mGoldenDir.mkdirs()) {
+            return false;
+        }
+        File file = new File(mGoldenDir, scenario.getName() + ".png");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            return bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 一个渲染场景
+     */
+    static final class Scenario {
+        final int mWidth;
+        final int mHeight;
+        final boolean mRound;
+        final int mBottomInset;
+        final int mMode;
+
+        Scenario(int width, int height, boolean round, int bottomInset, int mode) {
+            mWidth = width;
+            mHeight = height;
+            mRound = round;
+            mBottomInset = bottomInset;
+            mMode = mode;
+        }
+
+        /**
+         * @return 例如 round360_chin30_ambient，也是基准图文件名
+         */
+        String getName() {
+            return (mRound ? "round" : "square") + mWidth
+                    + (mBottomInset > 0 ? "_chin" + mBottomInset : "") + "_" + MODE_NAMES[mMode];
+        }
+
+        @Override
+        public String toString() {
+            return getName();
+        }
+    }
+}
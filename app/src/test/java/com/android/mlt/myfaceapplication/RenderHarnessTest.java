@@ -0,0 +1,148 @@
+package com.android.mlt.myfaceapplication;
+
+import android.graphics.Canvas;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.wearable.watchface.CanvasWatchFaceService;
+import android.support.wearable.watchface.WatchFaceService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 每个场景创建一个引擎，经生命周期回调进入对应状态后通过 onDraw 渲染，
+ * 与 src/test/resources/golden 中的基准图比较。
+ * <p>
+ * 表盘代码由 Robolectric 插桩，墙钟和单调时钟由测试控制。基准图由同一环境生成：
+ * 改动画面后用 {@code ./gradlew :app:testDebugUnitTest -PrecordGoldens} 重新记录并提交。
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(sdk = 29, instrumentedPackages = "com.android.mlt.myfaceapplication")
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+// 测试类本身不插桩，参数化运行器要求只有一个构造函数
+@DoNotInstrument
+public class RenderHarnessTest {
+
+    private static final File GOLDEN_DIR = new File("src/test/resources/golden");
+    // JVM 上的软件绘制比手表慢，预算只用来发现数量级的退化
+    private static final long BUDGET_MS = 100;
+
+    // 固定时间前一分钟开始设置，期间的分钟更新和未读合并窗口都已结束
+    private static final long SETUP_TIME_MS = RenderHarness.FIXED_TIME_MS - 60_000;
+    // 过渡开始到绘制的时间，约为过渡的一半
+    private static final long TRANSITION_ELAPSED_MS = TransitionAnimator.DURATION_MS / 2;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "{0}")
+    public static Collection<Object[]> scenarios() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (RenderHarness.Scenario scenario : RenderHarness.defaultScenarios()) {
+            parameters.add(new Object[]{scenario});
+        }
+        return parameters;
+    }
+
+    private final RenderHarness.Scenario mScenario;
+    private TimeZone mDefaultTimeZone;
+    private EngineDriver mDriver;
+
+    public RenderHarnessTest(RenderHarness.Scenario scenario) {
+        mScenario = scenario;
+    }
+
+    @Before
+    public void setUp() {
+        mDefaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+    }
+
+    @After
+    public void tearDown() {
+        if (mDriver != null) {
+            mDriver.destroy();
+        }
+        TimeZone.setDefault(mDefaultTimeZone);
+    }
+
+    @Test
+    public void matchesGolden() {
+        StringWriter report = new StringWriter();
+        boolean record = Boolean.getBoolean("recordGoldens");
+        boolean passed = new RenderHarness(GOLDEN_DIR, BUDGET_MS).run(mScenario,
+                new RenderHarness.Renderer() {
+                    @Override
+                    public void prepare(RenderHarness.Scenario scenario) {
+                        mDriver = drive(scenario);
+                    }
+
+                    @Override
+                    public void drawFrame(Canvas canvas) {
+                        mDriver.draw(canvas);
+                    }
+                }, record, new PrintWriter(report, true));
+        assertTrue(report.toString(), passed);
+    }
+
+    /**
+     * 按系统的顺序：屏幕属性、尺寸、可见，随后是场景的状态变化
+     */
+    private static EngineDriver drive(RenderHarness.Scenario scenario) {
+        int mode = scenario.mMode;
+        SystemClock.setCurrentTimeMillis(SETUP_TIME_MS);
+        EngineDriver driver = new EngineDriver();
+        CanvasWatchFaceService.Engine engine = driver.getEngine();
+
+        // 剩余 25% 降级，10% 最低档位
+        int percent = mode == RenderHarness.MODE_REDUCED ? 25
+                : mode == RenderHarness.MODE_MINIMAL ? 10 : 80;
+        driver.setBattery(percent, false, 250);
+        Bundle properties = new Bundle();
+        properties.putBoolean(WatchFaceService.PROPERTY_LOW_BIT_AMBIENT,
+                mode == RenderHarness.MODE_LOW_BIT);
+        engine.onPropertiesChanged(properties);
+        driver.setSurface(scenario.mWidth, scenario.mHeight, scenario.mRound,
+                scenario.mBottomInset);
+        driver.setVisible(true);
+        engine.onInterruptionFilterChanged(mode == RenderHarness.MODE_MUTE
+                ? WatchFaceService.INTERRUPTION_FILTER_NONE
+                : WatchFaceService.INTERRUPTION_FILTER_ALL);
+        engine.onUnreadCountChanged(3);
+        driver.idle();
+
+        if (mode == RenderHarness.MODE_DIGITAL) {
+            engine.onTapCommand(WatchFaceService.TAP_TYPE_TAP,
+                    scenario.mWidth / 2, scenario.mHeight / 2, SETUP_TIME_MS);
+        }
+        boolean ambient = mode == RenderHarness.MODE_AMBIENT
+                || mode == RenderHarness.MODE_LOW_BIT;
+        if (ambient || mode == RenderHarness.MODE_TRANSITION) {
+            engine.onAmbientModeChanged(true);
+        }
+        if (mode == RenderHarness.MODE_TRANSITION) {
+            driver.advanceTo(RenderHarness.FIXED_TIME_MS - TRANSITION_ELAPSED_MS);
+            engine.onAmbientModeChanged(false);
+        }
+        driver.advanceTo(RenderHarness.FIXED_TIME_MS);
+        if (ambient) {
+            // 微光模式由系统每分钟回调，贴后台线程预渲染的画面
+            engine.onTimeTick();
+            driver.idle();
+        }
+        return driver;
+    }
+}
@@ -0,0 +1,224 @@
+package com.android.mlt.myfaceapplication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用假时钟驱动 {@link TickScheduler}：请求合并、帧率变化、漏帧统计和停止定时
+ */
+public class TickSchedulerTest {
+
+    private FakeClock mClock;
+    private FakeHost mHost;
+    private FrameRateScheduler mFrameRate;
+    private FrameStats mStats;
+    private TickScheduler mTicks;
+
+    @Before
+    public void setUp() {
+        // 墙钟在某一秒的 300 毫秒处
+        mClock = new FakeClock(5_000, 100_000, 1_000_300);
+        mHost = new FakeHost();
+        mFrameRate = new FrameRateScheduler(1);
+        mStats = new FrameStats(true);
+        mTicks = new TickScheduler(mClock, mHost, mFrameRate, mStats);
+    }
+
+    @Test
+    public void requestsBeforeDrawAreCoalesced() {
+        mTicks.requestFrame(TickScheduler.SOURCE_MODEL);
+        mTicks.requestFrame(TickScheduler.SOURCE_TAP);
+        mTicks.requestFrame(TickScheduler.SOURCE_MODEL);
+
+        assertEquals(1, mHost.mFrames);
+        assertEquals(2, mStats.getCoalescedRequests());
+        assertEquals(TickScheduler.SOURCE_MODEL | TickScheduler.SOURCE_TAP, mTicks.onFrame());
+
+        mTicks.requestFrame(TickScheduler.SOURCE_TIME_TICK);
+        assertEquals(2, mHost.mFrames);
+        assertEquals(TickScheduler.SOURCE_TIME_TICK, mTicks.onFrame());
+    }
+
+    @Test
+    public void resetPendingFrameReposts() {
+        mTicks.requestFrame(TickScheduler.SOURCE_MODEL);
+        // 表面销毁，请求没有产生 onDraw
+        mTicks.resetPendingFrame();
+        mTicks.requestFrame(TickScheduler.SOURCE_VISIBILITY);
+
+        assertEquals(2, mHost.mFrames);
+        assertEquals(0, mStats.getCoalescedRequests());
+        assertEquals(TickScheduler.SOURCE_MODEL | TickScheduler.SOURCE_VISIBILITY,
+                mTicks.onFrame());
+    }
+
+    @Test
+    public void lostRequestTimesOut() {
+        mTicks.requestFrame(TickScheduler.SOURCE_MODEL);
+        mClock.advance(TickScheduler.FRAME_TIMEOUT_MS - 1);
+        mTicks.requestFrame(TickScheduler.SOURCE_MODEL);
+        assertEquals(1, mHost.mFrames);
+
+        // 休眠期间开机时钟停止，仍按休眠时继续计时的时钟判断超时
+        mClock.sleep(TickScheduler.FRAME_TIMEOUT_MS);
+        mTicks.requestFrame(TickScheduler.SOURCE_TIME_TICK);
+        assertEquals(2, mHost.mFrames);
+    }
+
+    @Test
+    public void tickIsAlignedToWallClockSecond() {
+        mTicks.setRunning(true);
+
+        assertTrue(mTicks.isRunning());
+        assertEquals(1, mHost.mFrames);
+        assertEquals(TickScheduler.SOURCE_TIMER, mTicks.onFrame());
+        // 距下一整秒 700 毫秒，换算到开机时钟
+        assertEquals(5_700, mHost.mTickAt);
+
+        mClock.advance(700);
+        mTicks.onTick();
+        assertEquals(2, mHost.mFrames);
+        assertEquals(6_700, mHost.mTickAt);
+        assertEquals(0, mStats.getMissedTicks());
+    }
+
+    @Test
+    public void rateChangeReschedulesToNewBoundary() {
+        mTicks.setRunning(true);
+        assertEquals(5_700, mHost.mTickAt);
+
+        mFrameRate.setTargetFrameRate(5);
+        mTicks.reschedule();
+        // 每秒 5 帧，下一个边界为 400 毫秒
+        assertEquals(5_100, mHost.mTickAt);
+
+        mClock.advance(100);
+        mTicks.onTick();
+        assertEquals(5_300, mHost.mTickAt);
+
+        // 降级后回到每秒一帧，此时墙钟在 400 毫秒处
+        assertTrue(mFrameRate.setReduced(true));
+        mTicks.reschedule();
+        assertEquals(5_700, mHost.mTickAt);
+    }
+
+    @Test
+    public void lateTickCountsSkippedSeconds() {
+        mTicks.setRunning(true);
+        mTicks.onFrame();
+
+        // 定时应在 700 毫秒后到达，休眠后晚了 3 秒多
+        mClock.sleep(3_500);
+        mClock.advance(700);
+        mTicks.onTick();
+
+        assertEquals(3, mStats.getMissedTicks());
+        assertEquals(0, mStats.getClockJumps());
+        // 按墙钟重新对齐：此时墙钟在 500 毫秒处
+        assertEquals(5_700 + 500, mHost.mTickAt);
+    }
+
+    @Test
+    public void wallClockJumpIsNotCountedAsMissed() {
+        mTicks.setRunning(true);
+        mTicks.onFrame();
+
+        mClock.advance(700);
+        // 用户把时间调快一分钟零 250 毫秒
+        mClock.mWall += 60_250;
+        mTicks.onTick();
+
+        assertEquals(1, mStats.getClockJumps());
+        assertEquals(0, mStats.getMissedTicks());
+        assertEquals(5_700 + 750, mHost.mTickAt);
+    }
+
+    @Test
+    public void stoppedSchedulerIgnoresTicks() {
+        mTicks.setRunning(true);
+        mTicks.onFrame();
+
+        // 进入微光模式
+        mTicks.setRunning(false);
+        assertFalse(mTicks.isRunning());
+        assertEquals(1, mHost.mCancels);
+        assertEquals(-1, mHost.mTickAt);
+
+        mClock.advance(700);
+        mTicks.onTick();
+        mTicks.reschedule();
+        assertEquals(1, mHost.mFrames);
+        assertEquals(-1, mHost.mTickAt);
+
+        // 微光模式仍可按请求重绘
+        mTicks.requestFrame(TickScheduler.SOURCE_TIME_TICK);
+        assertEquals(2, mHost.mFrames);
+    }
+
+    private static final class FakeClock implements TickScheduler.Clock {
+        long mUptime;
+        long mElapsed;
+        long mWall;
+
+        FakeClock(long uptime, long elapsed, long wall) {
+            mUptime = uptime;
+            mElapsed = elapsed;
+            mWall = wall;
+        }
+
+        void advance(long ms) {
+            mUptime += ms;
+            mElapsed += ms;
+            mWall += ms;
+        }
+
+        /**
+         * 深度休眠：开机时钟暂停
+         */
+        void sleep(long ms) {
+            mElapsed += ms;
+            mWall += ms;
+        }
+
+        @Override
+        public long uptimeMillis() {
+            return mUptime;
+        }
+
+        @Override
+        public long elapsedRealtime() {
+            return mElapsed;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return mWall;
+        }
+    }
+
+    private static final class FakeHost implements TickScheduler.Host {
+        int mFrames;
+        int mCancels;
+        long mTickAt = -1;
+
+        @Override
+        public void postFrame() {
+            mFrames++;
+        }
+
+        @Override
+        public void scheduleTick(long uptimeMillis) {
+            mTickAt = uptimeMillis;
+        }
+
+        @Override
+        public void cancelTick() {
+            mCancels++;
+            mTickAt = -1;
+        }
+    }
+}
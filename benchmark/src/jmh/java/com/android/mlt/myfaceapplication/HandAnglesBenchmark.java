@@ -0,0 +1,56 @@
+package com.android.mlt.myfaceapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一帧的指针角度：时间分解加三根指针的角度
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandAnglesBenchmark {
+
+    private WatchTime mWatchTime;
+    private long mTime;
+
+    @Setup
+    public void setUp() {
+        mWatchTime = new WatchTime(TimeZone.getTimeZone("Europe/Berlin"));
+        mTime = TimeFieldsBenchmark.START_MS;
+    }
+
+    @Benchmark
+    public void frame(Blackhole blackhole) {
+        mTime += TimeFieldsBenchmark.FRAME_MS;
+        WatchTime time = mWatchTime;
+        time.setTimeInMillis(mTime);
+        blackhole.consume(HandAngles.hours(time.getHourOfDay(), time.getMinute()));
+        blackhole.consume(HandAngles.minutes(time.getMinute()));
+        blackhole.consume(HandAngles.seconds(mTime));
+    }
+
+    /**
+     * 只有秒针，分钟以上的角度来自快照
+     */
+    @Benchmark
+    public float seconds() {
+        mTime += TimeFieldsBenchmark.FRAME_MS;
+        return HandAngles.seconds(mTime);
+    }
+}
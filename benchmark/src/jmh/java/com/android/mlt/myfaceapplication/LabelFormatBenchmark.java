@@ -0,0 +1,64 @@
+package com.android.mlt.myfaceapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 电量和未读通知文字：写入复用的 char 数组（{@link CharFormat}）与复用的
+ * {@link StringBuilder} 对比。数值每次变化，避免结果被常量折叠。
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LabelFormatBenchmark {
+
+    private final char[] mChars = new char[32];
+    private final StringBuilder mBuilder = new StringBuilder(32);
+    private int mValue;
+
+    @Benchmark
+    public int batteryChars() {
+        int length = CharFormat.appendInt(mChars, 0, nextPercent());
+        length = CharFormat.append(mChars, length, "%");
+        return length + mChars[0];
+    }
+
+    @Benchmark
+    public String batteryBuilder() {
+        mBuilder.setLength(0);
+        return mBuilder.append(nextPercent()).append('%').toString();
+    }
+
+    @Benchmark
+    public int noticeChars() {
+        int length = CharFormat.appendInt(mChars, 0, nextUnread());
+        length = CharFormat.append(mChars, length, " 条新通知");
+        return length + mChars[0];
+    }
+
+    @Benchmark
+    public String noticeBuilder() {
+        mBuilder.setLength(0);
+        return mBuilder.append(nextUnread()).append(" 条新通知").toString();
+    }
+
+    private int nextPercent() {
+        return mValue++ % 101;
+    }
+
+    private int nextUnread() {
+        return mValue++ % 200;
+    }
+}
@@ -0,0 +1,59 @@
+package com.android.mlt.myfaceapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 全部刻度端点的计算，表盘尺寸或屏幕形状变化时执行一次
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickLayoutBenchmark {
+
+    /**
+     * 宽x高，round 或 square，可选底部缺口
+     */
+    @Param({"360x360-round", "400x400-square", "360x360-round-30"})
+    public String screen;
+
+    private final float[] mLongTicks = new float[TickLayout.LONG_TICK_VALUES];
+    private final float[] mShortTicks = new float[TickLayout.SHORT_TICK_VALUES];
+
+    private int mWidth;
+    private int mHeight;
+    private boolean mRound;
+    private int mBottomInset;
+    private float mScale;
+
+    @Setup
+    public void setUp() {
+        String[] parts = screen.split("-");
+        String[] size = parts[0].split("x");
+        mWidth = Integer.parseInt(size[0]);
+        mHeight = Integer.parseInt(size[1]);
+        mRound = "round".equals(parts[1]);
+        mBottomInset = parts.length > 2 ? Integer.parseInt(parts[2]) : 0;
+        mScale = Math.min(mWidth, mHeight) / 360f;
+    }
+
+    @Benchmark
+    public float[] layout() {
+        TickLayout.layout(mWidth, mHeight, mRound, mBottomInset, mScale, mLongTicks, mShortTicks);
+        return mShortTicks;
+    }
+}
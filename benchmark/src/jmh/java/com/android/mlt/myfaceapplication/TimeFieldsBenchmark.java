@@ -0,0 +1,91 @@
+package com.android.mlt.myfaceapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每帧从时间戳取时、分、秒：{@link WatchTime} 与 {@link Calendar} 对比。
+ * <p>
+ * 每次调用时间前进一帧（16 毫秒），与表盘绘制时的调用方式一致，
+ * 跨过零点时 {@link WatchTime} 重新计算当天数据也计入结果。
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeFieldsBenchmark {
+
+    static final long START_MS = 1577873430000L;
+    static final long FRAME_MS = 16;
+
+    /**
+     * 有夏令时的时区和固定偏移的时区
+     */
+    @Param({"Europe/Berlin", "Asia/Shanghai"})
+    public String timeZone;
+
+    private WatchTime mWatchTime;
+    private Calendar mCalendar;
+    private long mTime;
+
+    @Setup
+    public void setUp() {
+        TimeZone zone = TimeZone.getTimeZone(timeZone);
+        mWatchTime = new WatchTime(zone);
+        mCalendar = Calendar.getInstance(zone);
+        mTime = START_MS;
+    }
+
+    @Benchmark
+    public int watchTime() {
+        mTime += FRAME_MS;
+        WatchTime time = mWatchTime;
+        time.setTimeInMillis(mTime);
+        return time.getHourOfDay() * 3600 + time.getMinute() * 60 + time.getSecond();
+    }
+
+    @Benchmark
+    public int calendar() {
+        mTime += FRAME_MS;
+        Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(mTime);
+        return calendar.get(Calendar.HOUR_OF_DAY) * 3600 + calendar.get(Calendar.MINUTE) * 60
+                + calendar.get(Calendar.SECOND);
+    }
+
+    /**
+     * 日期字段，{@link WatchTime} 每天只计算一次
+     */
+    @Benchmark
+    public int watchTimeDate() {
+        mTime += FRAME_MS;
+        WatchTime time = mWatchTime;
+        time.setTimeInMillis(mTime);
+        return time.getYear() * 10000 + time.getMonth() * 100 + time.getDayOfMonth()
+                + time.getDayOfWeek();
+    }
+
+    @Benchmark
+    public int calendarDate() {
+        mTime += FRAME_MS;
+        Calendar calendar = mCalendar;
+        calendar.setTimeInMillis(mTime);
+        return calendar.get(Calendar.YEAR) * 10000 + (calendar.get(Calendar.MONTH) + 1) * 100
+                + calendar.get(Calendar.DAY_OF_MONTH) + calendar.get(Calendar.DAY_OF_WEEK);
+    }
+}
@@ -0,0 +1,48 @@
+package com.android.mlt.myfaceapplication;
+
+/**
+ * 绘制路径上使用的无分配文字格式化工具。
+ * <p>
+ * 数字直接写入预先分配的 char 数组，配合 {@code Canvas.drawText(char[], ...)} 使用。
+ */
+final class CharFormat {
+
+    private CharFormat() {
+    }
+
+    /**
+     * 把非负整数写入字符数组
+     *
+     * @param buffer 目标数组
+     * @param offset 写入位置
+     * @param value  非负整数
+     * @return 写入后的位置
+     */
+    static int appendInt(char[] buffer, int offset, int value) {
+        if (value < 0) {
+            buffer[offset++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = offset + digits;
+        for (int i = end - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * 把字符串常量写入字符数组
+     *
+     * @return 写入后的位置
+     */
+    static int append(char[] buffer, int offset, String text) {
+        int length = text.length();
+        text.getChars(0, length, buffer, offset);
+        return offset + length;
+    }
+}
@@ -0,0 +1,38 @@
+package com.android.mlt.myfaceapplication;
+
+/**
+ * 指针角度，单位为度，12 点方向为 0，顺时针增加。
+ */
+final class HandAngles {
+
+    private static final long MINUTE_MS = 60 * 1000;
+
+    private HandAngles() {
+    }
+
+    /**
+     * 360 / 12 = 30，每分钟时针再走 0.5 度
+     *
+     * @param hourOfDay 0 ~ 23
+     * @param minute    0 ~ 59
+     */
+    static float hours(int hourOfDay, int minute) {
+        return (hourOfDay % 12) * 30 + minute / 2f;
+    }
+
+    /**
+     * 360 / 60 = 6
+     */
+    static float minutes(int minute) {
+        return minute * 6f;
+    }
+
+    /**
+     * 平滑走动的秒针，包含毫秒
+     *
+     * @param millis 墙钟时间
+     */
+    static float seconds(long millis) {
+        return (millis % MINUTE_MS) / 1000f * 6f;
+    }
+}
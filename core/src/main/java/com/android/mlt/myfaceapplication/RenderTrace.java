@@ -0,0 +1,121 @@
+package com.android.mlt.myfaceapplication;
+
+/**
+ * 绘制命令轨迹的二进制格式。
+ * <p>
+ * 文件头为 {@link #MAGIC} 和 {@link #VERSION}，之后是连续的命令记录，
+ * 每条记录以一个字节的操作码开头，参数按大端序紧随其后：
+ * <pre>
+ * FRAME        long 墙钟毫秒
+ * TARGET       byte 绘制目标
+ * SAVE/RESTORE 无参数
+ * ROTATE       float 角度, float px, float py
+ * COLOR        int 颜色
+ * LINE         float x0, y0, x1, y1, byte 画笔
+ * CIRCLE       float cx, cy, r, byte 画笔
+ * ARC          float 起始角, 扫过角, byte 是否连接圆心, byte 画笔
+ * TEXT         short 字符数, float x, y, byte 画笔
+ * BITMAP       short 宽, short 高, float left, top, byte 画笔
+ * MEASURE      short 字符数, byte 画笔
+ * BOUNDS       short 字符数, byte 画笔
+ * TRANSLATE    float dx, dy（版本 2）
+ * RECT         float left, top, right, bottom, byte 画笔（版本 2）
+ * BITMAP_MATRIX short 宽, short 高, float 仿射矩阵 6 项, byte 画笔（版本 3）
+ * BITMAP_RECT  short 宽, short 高, short 源矩形 4 项, float 目标矩形 4 项, byte 画笔（版本 4）
+ * LINES        short 线段数, byte 画笔（版本 5）
+ * CLIP_RECT    float left, top, right, bottom（版本 6）
+ * </pre>
+ * 不依赖 Android 类，可在 JVM 上直接解析。
+ */
+final class RenderTrace {
+
+    static final int MAGIC = 0x57465452; // "WFTR"
+    static final short VERSION = 6;
+
+    static final byte OP_FRAME = 1;
+    static final byte OP_TARGET = 2;
+    static final byte OP_SAVE = 3;
+    static final byte OP_RESTORE = 4;
+    static final byte OP_ROTATE = 5;
+    static final byte OP_COLOR = 6;
+    static final byte OP_LINE = 7;
+    static final byte OP_CIRCLE = 8;
+    static final byte OP_ARC = 9;
+    static final byte OP_TEXT = 10;
+    static final byte OP_BITMAP = 11;
+    static final byte OP_MEASURE = 12;
+    static final byte OP_BOUNDS = 13;
+    static final byte OP_TRANSLATE = 14;
+    static final byte OP_RECT = 15;
+    static final byte OP_BITMAP_MATRIX = 16;
+    static final byte OP_BITMAP_RECT = 17;
+    static final byte OP_LINES = 18;
+    static final byte OP_CLIP_RECT = 19;
+    static final int OP_COUNT = 20;
+
+    static final String[] OP_NAMES = {
+            "?", "frame", "target", "save", "restore", "rotate", "color", "line", "circle",
+            "arc", "text", "bitmap", "measure", "bounds", "translate", "rect",
+            "bitmapMatrix", "bitmapRect", "lines", "clipRect"
+    };
+
+    /**
+     * 绘制目标：屏幕、静态表盘图层、分钟图层
+     */
+    static final int TARGET_SCREEN = 0;
+    static final int TARGET_DIAL = 1;
+    static final int TARGET_MINUTE = 2;
+
+    /**
+     * 未登记的画笔和空画笔
+     */
+    static final byte PAINT_UNKNOWN = (byte) 0xFE;
+    static final byte PAINT_NONE = (byte) 0xFF;
+
+    private RenderTrace() {
+    }
+
+    /**
+     * @return 操作码之后的参数字节数，未知操作码返回 -1
+     */
+    static int payloadSize(int op) {
+        switch (op) {
+            case OP_FRAME:
+                return 8;
+            case OP_TARGET:
+                return 1;
+            case OP_SAVE:
+            case OP_RESTORE:
+                return 0;
+            case OP_ROTATE:
+                return 12;
+            case OP_COLOR:
+                return 4;
+            case OP_LINE:
+                return 17;
+            case OP_CIRCLE:
+                return 13;
+            case OP_ARC:
+                return 10;
+            case OP_TEXT:
+                return 11;
+            case OP_BITMAP:
+                return 13;
+            case OP_MEASURE:
+            case OP_BOUNDS:
+            case OP_LINES:
+                return 3;
+            case OP_TRANSLATE:
+                return 8;
+            case OP_CLIP_RECT:
+                return 16;
+            case OP_RECT:
+                return 17;
+            case OP_BITMAP_MATRIX:
+            case OP_BITMAP_RECT:
+                return 29;
+            default:
+                return -1;
+        }
+    }
+}
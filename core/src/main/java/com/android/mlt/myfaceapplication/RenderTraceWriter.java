@@ -0,0 +1,227 @@
+package com.android.mlt.myfaceapplication;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 按 {@link RenderTrace} 格式写入命令轨迹，只依赖 JVM。
+ * <p>
+ * 轨迹写入预先分配的缓冲区，剩余空间不足一条记录时停止写入并标记溢出，
+ * 之后的记录全部丢弃，已写入的部分仍可完整解析。
+ */
+final class RenderTraceWriter {
+
+    // 最长一条记录的字节数
+    static final int MAX_RECORD_SIZE = 30;
+
+    private final ByteBuffer mBuffer;
+    private boolean mOverflow;
+
+    /**
+     * @param capacity 缓冲区字节数，包含文件头
+     */
+    RenderTraceWriter(int capacity) {
+        mBuffer = ByteBuffer.allocate(capacity);
+        mBuffer.putInt(RenderTrace.MAGIC);
+        mBuffer.putShort(RenderTrace.VERSION);
+    }
+
+    /**
+     * @return 缓冲区是否已写满
+     */
+    boolean isOverflow() {
+        return mOverflow;
+    }
+
+    /**
+     * @return 已写入的字节数
+     */
+    int size() {
+        return mBuffer.position();
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(mBuffer.array(), mBuffer.position());
+    }
+
+    /**
+     * 写出已记录的轨迹
+     */
+    void writeTo(OutputStream out) throws IOException {
+        out.write(mBuffer.array(), 0, mBuffer.position());
+    }
+
+    void writeFrame(long wallMs) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_FRAME);
+            mBuffer.putLong(wallMs);
+        }
+    }
+
+    void writeTarget(int target) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_TARGET);
+            mBuffer.put((byte) target);
+        }
+    }
+
+    void writeSave() {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_SAVE);
+        }
+    }
+
+    void writeRestore() {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_RESTORE);
+        }
+    }
+
+    void writeRotate(float degrees, float px, float py) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_ROTATE);
+            mBuffer.putFloat(degrees).putFloat(px).putFloat(py);
+        }
+    }
+
+    void writeTranslate(float dx, float dy) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_TRANSLATE);
+            mBuffer.putFloat(dx).putFloat(dy);
+        }
+    }
+
+    void writeClipRect(float left, float top, float right, float bottom) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_CLIP_RECT);
+            mBuffer.putFloat(left).putFloat(top).putFloat(right).putFloat(bottom);
+        }
+    }
+
+    void writeColor(int color) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_COLOR);
+            mBuffer.putInt(color);
+        }
+    }
+
+    void writeLine(float startX, float startY, float stopX, float stopY, byte paint) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_LINE);
+            mBuffer.putFloat(startX).putFloat(startY).putFloat(stopX).putFloat(stopY);
+            mBuffer.put(paint);
+        }
+    }
+
+    /**
+     * @param count 线段数
+     */
+    void writeLines(int count, byte paint) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_LINES);
+            mBuffer.putShort((short) count);
+            mBuffer.put(paint);
+        }
+    }
+
+    void writeCircle(float cx, float cy, float radius, byte paint) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_CIRCLE);
+            mBuffer.putFloat(cx).putFloat(cy).putFloat(radius);
+            mBuffer.put(paint);
+        }
+    }
+
+    void writeRect(float left, float top, float right, float bottom, byte paint) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_RECT);
+            mBuffer.putFloat(left).putFloat(top).putFloat(right).putFloat(bottom);
+            mBuffer.put(paint);
+        }
+    }
+
+    void writeArc(float startAngle, float sweepAngle, boolean useCenter, byte paint) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_ARC);
+            mBuffer.putFloat(startAngle).putFloat(sweepAngle);
+            mBuffer.put((byte) (useCenter ? 1 : 0));
+            mBuffer.put(paint);
+        }
+    }
+
+    void writeText(int count, float x, float y, byte paint) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_TEXT);
+            mBuffer.putShort((short) count).putFloat(x).putFloat(y);
+            mBuffer.put(paint);
+        }
+    }
+
+    void writeBitmap(int width, int height, float left, float top, byte paint) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_BITMAP);
+            mBuffer.putShort((short) width).putShort((short) height);
+            mBuffer.putFloat(left).putFloat(top);
+            mBuffer.put(paint);
+        }
+    }
+
+    /**
+     * 仿射矩阵按行写入前两行
+     */
+    void writeBitmapMatrix(int width, int height, float scaleX, float skewX, float transX,
+                           float skewY, float scaleY, float transY, byte paint) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_BITMAP_MATRIX);
+            mBuffer.putShort((short) width).putShort((short) height);
+            mBuffer.putFloat(scaleX).putFloat(skewX).putFloat(transX)
+                    .putFloat(skewY).putFloat(scaleY).putFloat(transY);
+            mBuffer.put(paint);
+        }
+    }
+
+    void writeBitmapRect(int width, int height, int srcLeft, int srcTop, int srcRight,
+                         int srcBottom, float dstLeft, float dstTop, float dstRight,
+                         float dstBottom, byte paint) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_BITMAP_RECT);
+            mBuffer.putShort((short) width).putShort((short) height);
+            mBuffer.putShort((short) srcLeft).putShort((short) srcTop)
+                    .putShort((short) srcRight).putShort((short) srcBottom);
+            mBuffer.putFloat(dstLeft).putFloat(dstTop).putFloat(dstRight).putFloat(dstBottom);
+            mBuffer.put(paint);
+        }
+    }
+
+    void writeMeasure(int count, byte paint) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_MEASURE);
+            mBuffer.putShort((short) count);
+            mBuffer.put(paint);
+        }
+    }
+
+    void writeBounds(int count, byte paint) {
+        if (reserve()) {
+            mBuffer.put(RenderTrace.OP_BOUNDS);
+            mBuffer.putShort((short) count);
+            mBuffer.put(paint);
+        }
+    }
+
+    /**
+     * 确认缓冲区还能容纳一条记录
+     */
+    private boolean reserve() {
+        if (mOverflow) {
+            return false;
+        }
+        if (mBuffer.remaining() < MAX_RECORD_SIZE) {
+            mOverflow = true;
+            return false;
+        }
+        return true;
+    }
+}
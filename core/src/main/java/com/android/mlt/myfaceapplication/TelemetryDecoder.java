@@ -0,0 +1,130 @@
+package com.android.mlt.myfaceapplication;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * 把遥测环形文件转换为 CSV，只依赖 JVM。
+ * <p>
+ * 用法：
+ * <pre>
+ * adb exec-out run-as com.android.mlt.myfaceapplication cat files/telemetry.bin &gt; telemetry.bin
+ * java TelemetryDecoder telemetry.bin &gt; telemetry.csv
+ * </pre>
+ * 每个区间一行，按时间从旧到新。除记录中的原始字段外，还输出各模式每小时帧数、
+ * 平均每帧绘制耗时，以及与上一区间相比的电量变化（充电时为空）。
+ */
+public final class TelemetryDecoder {
+
+    private TelemetryDecoder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: TelemetryDecoder <telemetry file>");
+            System.exit(2);
+        }
+        print(read(new File(args[0])), System.out);
+    }
+
+    /**
+     * 解析文件，按写入顺序返回仍在环中的记录
+     */
+    static List<TelemetryFormat.Record> read(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(data);
+        }
+        return parse(ByteBuffer.wrap(data));
+    }
+
+    static List<TelemetryFormat.Record> parse(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < TelemetryFormat.HEADER_BYTES
+                || buffer.getInt() != TelemetryFormat.MAGIC) {
+            throw new IOException("not a telemetry file");
+        }
+        short version = buffer.getShort();
+        // 记录长度随来源个数变化，只解析当前版本
+        if (version != TelemetryFormat.VERSION) {
+            throw new IOException("unsupported telemetry version " + version);
+        }
+        int recordBytes = buffer.getShort();
+        int capacity = buffer.getInt();
+        long written = buffer.getLong();
+        if (recordBytes != TelemetryFormat.RECORD_BYTES || capacity <= 0 || written < 0) {
+            throw new IOException("bad telemetry header");
+        }
+        List<TelemetryFormat.Record> records = new ArrayList<>();
+        long first = Math.max(0, written - capacity);
+        for (long i = first; i < written; i++) {
+            long offset = TelemetryFormat.slotOffset(i, capacity);
+            if (offset + recordBytes > buffer.limit()) {
+                // 最后一批尚未完整写入
+                break;
+            }
+            buffer.position((int) offset);
+            TelemetryFormat.Record record = new TelemetryFormat.Record();
+            record.read(buffer);
+            records.add(record);
+        }
+        return records;
+    }
+
+    static void print(List<TelemetryFormat.Record> records, PrintStream out) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        StringBuilder line = new StringBuilder("start,duration_ms");
+        for (String mode : TelemetryFormat.MODE_NAMES) {
+            line.append(',').append(mode).append("_ms");
+            line.append(',').append(mode).append("_frames");
+            line.append(',').append(mode).append("_frames_per_hour");
+            line.append(',').append(mode).append("_draw_us_per_frame");
+        }
+        line.append(",max_draw_us");
+        for (String source : TelemetryFormat.SOURCE_NAMES) {
+            line.append(",src_").append(source);
+        }
+        line.append(",battery,charging,temperature_c,battery_delta");
+        out.println(line);
+
+        int lastPercent = -1;
+        for (TelemetryFormat.Record record : records) {
+            line.setLength(0);
+            line.append(format.format(new Date(record.startMs)));
+            line.append(',').append(record.durationMs);
+            for (int mode = 0; mode < TelemetryFormat.MODE_COUNT; mode++) {
+                int frames = record.frames[mode];
+                int modeMs = record.modeMs[mode];
+                line.append(',').append(modeMs);
+                line.append(',').append(frames);
+                line.append(',').append(modeMs > 0
+                        ? String.format(Locale.US, "%.1f", frames * 3_600_000.0 / modeMs) : "");
+                line.append(',').append(frames > 0 ? record.drawMicros[mode] / frames : 0);
+            }
+            line.append(',').append(record.maxDrawMicros);
+            for (int count : record.sourceFrames) {
+                line.append(',').append(count);
+            }
+            line.append(',').append(record.batteryPercent);
+            line.append(',').append(record.charging ? 1 : 0);
+            line.append(',').append(record.temperatureTenths / 10f);
+            line.append(',');
+            if (!record.charging && lastPercent >= 0 && record.batteryPercent >= 0) {
+                line.append(record.batteryPercent - lastPercent);
+            }
+            lastPercent = record.batteryPercent;
+            out.println(line);
+        }
+    }
+}
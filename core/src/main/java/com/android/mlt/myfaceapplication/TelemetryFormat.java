@@ -0,0 +1,139 @@
+package com.android.mlt.myfaceapplication;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 遥测环形文件的二进制格式。
+ * <p>
+ * 文件头 {@link #HEADER_BYTES} 字节，之后是容量个定长记录，第 n 条记录（从 0 开始）
+ * 写在槽位 n % 容量，写满后覆盖最旧的记录。全部为大端序：
+ * <pre>
+ * 文件头  int MAGIC, short VERSION, short 记录字节数, int 容量, long 已写入记录总数
+ * 记录    long 区间起始墙钟毫秒, int 区间时长毫秒,
+ *         int[3] 各模式时长毫秒, int[3] 各模式帧数, int[3] 各模式绘制耗时合计微秒,
+ *         int 最长单帧绘制微秒, short[SOURCE_COUNT] 各来源触发的帧数,
+ *         byte 区间结束时的电量百分比（未知为 -1）, byte 是否充电, short 电池温度 0.1 摄氏度
+ * </pre>
+ * 模式依次为交互、微光、勿扰（交互模式下勿扰打开）。版本 2 增加 transition 来源。
+ * 不依赖 Android 类，可在 JVM 上直接解析。
+ */
+final class TelemetryFormat {
+
+    static final int MAGIC = 0x5746544c; // "WFTL"
+    static final short VERSION = 2;
+
+    static final int MODE_INTERACTIVE = 0;
+    static final int MODE_AMBIENT = 1;
+    static final int MODE_MUTE = 2;
+    static final int MODE_COUNT = 3;
+    static final String[] MODE_NAMES = {"interactive", "ambient", "mute"};
+
+    /**
+     * 帧的触发来源，下标为 {@code TickScheduler.SOURCE_*} 的位序号
+     */
+    static final int SOURCE_COUNT = 9;
+    static final String[] SOURCE_NAMES = {
+            "timer", "model", "tap", "interruption", "visibility", "complication",
+            "timeTick", "timeZone", "transition"
+    };
+
+    static final int HEADER_BYTES = 4 + 2 + 2 + 4 + 8;
+    static final int RECORD_BYTES = 8 + 4 + MODE_COUNT * 4 * 3 + 4 + SOURCE_COUNT * 2 + 1 + 1 + 2;
+
+    private TelemetryFormat() {
+    }
+
+    static void writeHeader(ByteBuffer buffer, int capacity, long written) {
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) RECORD_BYTES);
+        buffer.putInt(capacity);
+        buffer.putLong(written);
+    }
+
+    /**
+     * @return 记录槽位在文件中的偏移
+     */
+    static long slotOffset(long index, int capacity) {
+        return HEADER_BYTES + (index % capacity) * (long) RECORD_BYTES;
+    }
+
+    /**
+     * 一个统计区间。计数超出字段范围时截断
+     */
+    static final class Record {
+        long startMs;
+        int durationMs;
+        final int[] modeMs = new int[MODE_COUNT];
+        final int[] frames = new int[MODE_COUNT];
+        final int[] drawMicros = new int[MODE_COUNT];
+        int maxDrawMicros;
+        final int[] sourceFrames = new int[SOURCE_COUNT];
+        int batteryPercent = -1;
+        boolean charging;
+        int temperatureTenths;
+
+        /**
+         * 清零计数，电池状态保留到下一区间
+         */
+        void reset(long startMs) {
+            this.startMs = startMs;
+            durationMs = 0;
+            for (int i = 0; i < MODE_COUNT; i++) {
+                modeMs[i] = 0;
+                frames[i] = 0;
+                drawMicros[i] = 0;
+            }
+            maxDrawMicros = 0;
+            for (int i = 0; i < SOURCE_COUNT; i++) {
+                sourceFrames[i] = 0;
+            }
+        }
+
+        void write(ByteBuffer buffer) {
+            buffer.putLong(startMs);
+            buffer.putInt(durationMs);
+            for (int i = 0; i < MODE_COUNT; i++) {
+                buffer.putInt(modeMs[i]);
+            }
+            for (int i = 0; i < MODE_COUNT; i++) {
+                buffer.putInt(frames[i]);
+            }
+            for (int i = 0; i < MODE_COUNT; i++) {
+                buffer.putInt(drawMicros[i]);
+            }
+            buffer.putInt(maxDrawMicros);
+            for (int i = 0; i < SOURCE_COUNT; i++) {
+                buffer.putShort((short) Math.min(sourceFrames[i], Short.MAX_VALUE));
+            }
+            buffer.put((byte) batteryPercent);
+            buffer.put((byte) (charging ? 1 : 0));
+            buffer.putShort((short) temperatureTenths);
+        }
+
+        void read(ByteBuffer buffer) throws IOException {
+            if (buffer.remaining() < RECORD_BYTES) {
+                throw new IOException("truncated record");
+            }
+            startMs = buffer.getLong();
+            durationMs = buffer.getInt();
+            for (int i = 0; i < MODE_COUNT; i++) {
+                modeMs[i] = buffer.getInt();
+            }
+            for (int i = 0; i < MODE_COUNT; i++) {
+                frames[i] = buffer.getInt();
+            }
+            for (int i = 0; i < MODE_COUNT; i++) {
+                drawMicros[i] = buffer.getInt();
+            }
+            maxDrawMicros = buffer.getInt();
+            for (int i = 0; i < SOURCE_COUNT; i++) {
+                sourceFrames[i] = buffer.getShort();
+            }
+            batteryPercent = buffer.get();
+            charging = buffer.get() != 0;
+            temperatureTenths = buffer.getShort();
+        }
+    }
+}
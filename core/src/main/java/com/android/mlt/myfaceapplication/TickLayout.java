@@ -0,0 +1,94 @@
+package com.android.mlt.myfaceapplication;
+
+/**
+ * 表盘刻度端点计算。
+ * <p>
+ * 刻度沿屏幕边缘排布，方形屏幕贴合四边，底部缺口处向内收缩；
+ * 端点排成 {@code drawLines} 使用的数组，每条刻度 4 个值：起点 x、y，终点 x、y。
+ */
+final class TickLayout {
+
+    /**
+     * 刻度个数，每 5 个为一个整点刻度
+     */
+    static final int TICK_COUNT = 60;
+
+    /**
+     * 整点刻度和短刻度数组长度
+     */
+    static final int LONG_TICK_VALUES = TICK_COUNT / 5 * 4;
+    static final int SHORT_TICK_VALUES = TICK_COUNT * 4;
+
+    // 以下为缩放前距屏幕边缘的像素数
+    private static final float LONG_TICK_STOP = 12f;
+    private static final float SHORT_TICK_START = 14f;
+    private static final float SHORT_TICK_STOP = 16f;
+
+    private TickLayout() {
+    }
+
+    /**
+     * 计算全部刻度端点，中心为屏幕中心
+     *
+     * @param width       表盘宽
+     * @param height      表盘高
+     * @param round       圆形屏幕
+     * @param bottomInset 底部缺口高度，没有时为 0
+     * @param scale       刻度长度的缩放比例
+     * @param longTicks   整点刻度，长度 {@link #LONG_TICK_VALUES}
+     * @param shortTicks  短刻度，长度 {@link #SHORT_TICK_VALUES}
+     */
+    static void layout(int width, int height, boolean round, int bottomInset, float scale,
+                       float[] longTicks, float[] shortTicks) {
+        float centerX = width / 2f;
+        float centerY = height / 2f;
+        for (int i = 0; i < TICK_COUNT; i++) {
+            double angle = Math.toRadians(i * 360.0 / TICK_COUNT);
+            float dx = (float) Math.sin(angle);
+            float dy = (float) -Math.cos(angle);
+            float edge = edgeDistance(width, height, round, bottomInset, dx, dy);
+            setTick(shortTicks, i, centerX, centerY, dx, dy, edge - SHORT_TICK_START * scale,
+                    edge - SHORT_TICK_STOP * scale);
+            if (i % 5 == 0) {
+                setTick(longTicks, i / 5, centerX, centerY, dx, dy, edge,
+                        edge - LONG_TICK_STOP * scale);
+            }
+        }
+    }
+
+    /**
+     * 中心沿 (dx, dy) 方向到屏幕边缘的距离
+     */
+    static float edgeDistance(int width, int height, boolean round, int bottomInset,
+                              float dx, float dy) {
+        float centerX = width / 2f;
+        float centerY = height / 2f;
+        float distance;
+        if (round) {
+            distance = Math.min(centerX, centerY);
+        } else {
+            // 方形屏幕取先到达的那条边
+            distance = Float.MAX_VALUE;
+            if (Math.abs(dx) > 1e-6f) {
+                distance = Math.min(distance, centerX / Math.abs(dx));
+            }
+            if (Math.abs(dy) > 1e-6f) {
+                distance = Math.min(distance, centerY / Math.abs(dy));
+            }
+        }
+        if (bottomInset > 0 && dy > 1e-6f) {
+            // 向下的刻度止于底部缺口
+            distance = Math.min(distance, (height - bottomInset - centerY) / dy);
+        }
+        return distance;
+    }
+
+    private static void setTick(float[] ticks, int index, float centerX, float centerY,
+                                float dx, float dy, float from, float to) {
+        int i = index * 4;
+        ticks[i] = centerX + dx * from;
+        ticks[i + 1] = centerY + dy * from;
+        ticks[i + 2] = centerX + dx * to;
+        ticks[i + 3] = centerY + dy * to;
+    }
+}
@@ -0,0 +1,168 @@
+package com.android.mlt.myfaceapplication;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 绘制命令轨迹的离线统计工具，只依赖 JVM。
+ * <p>
+ * 用法：
+ * <pre>
+ * adb shell dumpsys activity service com.android.mlt.myfaceapplication/.MyWatchFace trace 120
+ * adb exec-out run-as com.android.mlt.myfaceapplication cat files/render.trace &gt; new.trace
+ * ./gradlew :core:traceReplay -Ptraces=new.trace             统计每帧命令数
+ * ./gradlew :core:traceReplay -Ptraces=base.trace,new.trace  对比两份轨迹，平均每帧命令数增加时失败
+ * </pre>
+ * 轨迹由 {@link RenderTraceWriter} 写入，core/src/test/resources/traces 下的轨迹可作为对比基准。
+ */
+public final class TraceReplay {
+
+    /**
+     * 一帧内各操作码的次数
+     */
+    static final class FrameCounts {
+        final long wallMs;
+        final int[] ops = new int[RenderTrace.OP_COUNT];
+
+        FrameCounts(long wallMs) {
+            this.wallMs = wallMs;
+        }
+
+        int total() {
+            int total = 0;
+            for (int op = RenderTrace.OP_SAVE; op < RenderTrace.OP_COUNT; op++) {
+                total += ops[op];
+            }
+            return total;
+        }
+    }
+
+    private TraceReplay() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length > 2) {
+            System.err.println("usage: TraceReplay <trace> [new trace]");
+            System.exit(2);
+        }
+        List<FrameCounts> base = read(new File(args[0]));
+        if (args.length == 1) {
+            print(base, System.out);
+            return;
+        }
+        List<FrameCounts> current = read(new File(args[1]));
+        boolean regressed = diff(base, current, System.out);
+        System.exit(regressed ? 1 : 0);
+    }
+
+    /**
+     * 解析轨迹文件
+     */
+    static List<FrameCounts> read(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(data);
+        }
+        return parse(ByteBuffer.wrap(data));
+    }
+
+    static List<FrameCounts> parse(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 6 || buffer.getInt() != RenderTrace.MAGIC) {
+            throw new IOException("not a render trace");
+        }
+        short version = buffer.getShort();
+        if (version < 1 || version > RenderTrace.VERSION) {
+            throw new IOException("unsupported trace version " + version);
+        }
+        List<FrameCounts> frames = new ArrayList<>();
+        FrameCounts frame = null;
+        while (buffer.hasRemaining()) {
+            int op = buffer.get();
+            int size = RenderTrace.payloadSize(op);
+            if (size < 0) {
+                throw new IOException("bad op " + op + " at " + (buffer.position() - 1));
+            }
+            if (buffer.remaining() < size) {
+                throw new EOFException("truncated op " + RenderTrace.OP_NAMES[op]);
+            }
+            if (op == RenderTrace.OP_FRAME) {
+                frame = new FrameCounts(buffer.getLong());
+                frames.add(frame);
+                continue;
+            }
+            buffer.position(buffer.position() + size);
+            if (frame != null) {
+                frame.ops[op]++;
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * @return 每个操作码的平均每帧次数，下标为操作码
+     */
+    static double[] average(List<FrameCounts> frames) {
+        double[] average = new double[RenderTrace.OP_COUNT];
+        if (frames.isEmpty()) {
+            return average;
+        }
+        for (FrameCounts frame : frames) {
+            for (int op = 0; op < RenderTrace.OP_COUNT; op++) {
+                average[op] += frame.ops[op];
+            }
+        }
+        for (int op = 0; op < RenderTrace.OP_COUNT; op++) {
+            average[op] /= frames.size();
+        }
+        return average;
+    }
+
+    static void print(List<FrameCounts> frames, PrintStream out) {
+        out.println(String.format(Locale.US, "%-6s %6s %6s %6s %6s %6s %6s %6s",
+                "frame", "ops", "save", "rotate", "text", "measure", "bitmap", "line"));
+        for (int i = 0; i < frames.size(); i++) {
+            FrameCounts frame = frames.get(i);
+            out.println(String.format(Locale.US, "%-6d %6d %6d %6d %6d %6d %6d %6d",
+                    i, frame.total(), frame.ops[RenderTrace.OP_SAVE],
+                    frame.ops[RenderTrace.OP_ROTATE], frame.ops[RenderTrace.OP_TEXT],
+                    frame.ops[RenderTrace.OP_MEASURE] + frame.ops[RenderTrace.OP_BOUNDS],
+                    frame.ops[RenderTrace.OP_BITMAP] + frame.ops[RenderTrace.OP_BITMAP_MATRIX]
+                            + frame.ops[RenderTrace.OP_BITMAP_RECT],
+                    frame.ops[RenderTrace.OP_LINE] + frame.ops[RenderTrace.OP_LINES]));
+        }
+        double[] average = average(frames);
+        out.println("average per frame over " + frames.size() + " frames:");
+        for (int op = RenderTrace.OP_SAVE; op < RenderTrace.OP_COUNT; op++) {
+            out.println(String.format(Locale.US, "  %-8s %8.2f", RenderTrace.OP_NAMES[op],
+                    average[op]));
+        }
+    }
+
+    /**
+     * 对比两份轨迹的平均每帧命令数
+     *
+     * @return 是否有操作码的平均次数增加
+     */
+    static boolean diff(List<FrameCounts> base, List<FrameCounts> current, PrintStream out) {
+        double[] before = average(base);
+        double[] after = average(current);
+        boolean regressed = false;
+        out.println(String.format(Locale.US, "%-8s %8s %8s %8s", "op", "base", "new", "delta"));
+        for (int op = RenderTrace.OP_SAVE; op < RenderTrace.OP_COUNT; op++) {
+            double delta = after[op] - before[op];
+            boolean worse = delta > 0.005;
+            regressed |= worse;
+            out.println(String.format(Locale.US, "%-8s %8.2f %8.2f %+8.2f%s",
+                    RenderTrace.OP_NAMES[op], before[op], after[op], delta, worse ? "  !" : ""));
+        }
+        return regressed;
+    }
+}
@@ -0,0 +1,210 @@
+package com.android.mlt.myfaceapplication;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * 无分配的本地时间分解。
+ * <p>
+ * 每天（或时区、夏令时变化时）计算一次当天零点和 UTC 偏移，以及该偏移的有效区间；
+ * 之后每帧只用整数运算从毫秒时间戳得到时、分、秒、毫秒和日期，
+ * 不再像 {@link Calendar#setTimeInMillis(long)} 那样每次重新计算全部字段。
+ */
+final class WatchTime {
+
+    private static final long SECOND_MS = 1000;
+    private static final long MINUTE_MS = 60 * SECOND_MS;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    private static final long DAY_MS = 24 * HOUR_MS;
+
+    private TimeZone mTimeZone;
+
+    // 缓存有效区间 [mValidFrom, mValidUntil)，区间内偏移不变且处于同一本地日期
+    private long mValidFrom = Long.MAX_VALUE;
+    private long mValidUntil = Long.MIN_VALUE;
+    private int mOffset;
+    // 本地零点，以本地毫秒表示
+    private long mLocalDayStart;
+
+    private long mTimeInMillis;
+
+    // 每天计算一次的字段
+    private int mYear;
+    private int mMonth;
+    private int mDayOfMonth;
+    private int mDayOfWeek;
+
+    // 每帧计算的字段
+    private int mHourOfDay;
+    private int mMinute;
+    private int mSecond;
+    private int mMillis;
+
+    WatchTime(TimeZone timeZone) {
+        mTimeZone = timeZone;
+    }
+
+    /**
+     * 时区变化，丢弃缓存
+     */
+    void setTimeZone(TimeZone timeZone) {
+        mTimeZone = timeZone;
+        invalidate();
+    }
+
+    /**
+     * 系统时间被修改，丢弃缓存
+     */
+    void invalidate() {
+        mValidFrom = Long.MAX_VALUE;
+        mValidUntil = Long.MIN_VALUE;
+    }
+
+    void setTimeInMillis(long millis) {
+        mTimeInMillis = millis;
+        if (millis < mValidFrom || millis >= mValidUntil) {
+            computeDay(millis);
+        }
+        long msOfDay = millis + mOffset - mLocalDayStart;
+        mHourOfDay = (int) (msOfDay / HOUR_MS);
+        mMinute = (int) (msOfDay / MINUTE_MS % 60);
+        mSecond = (int) (msOfDay / SECOND_MS % 60);
+        mMillis = (int) (msOfDay % SECOND_MS);
+    }
+
+    long getTimeInMillis() {
+        return mTimeInMillis;
+    }
+
+    /**
+     * @return 年
+     */
+    int getYear() {
+        return mYear;
+    }
+
+    /**
+     * @return 月，1 ~ 12
+     */
+    int getMonth() {
+        return mMonth;
+    }
+
+    int getDayOfMonth() {
+        return mDayOfMonth;
+    }
+
+    /**
+     * @return 星期，与 {@link Calendar#DAY_OF_WEEK} 相同，周日为 1
+     */
+    int getDayOfWeek() {
+        return mDayOfWeek;
+    }
+
+    /**
+     * @return 0 ~ 23
+     */
+    int getHourOfDay() {
+        return mHourOfDay;
+    }
+
+    /**
+     * @return 0 ~ 11，与 {@link Calendar#HOUR} 相同
+     */
+    int getHour() {
+        return mHourOfDay % 12;
+    }
+
+    int getMinute() {
+        return mMinute;
+    }
+
+    int getSecond() {
+        return mSecond;
+    }
+
+    int getMillis() {
+        return mMillis;
+    }
+
+    /**
+     * @return 本地日期编号（自 1970-01-01 起的天数），日期变化时改变
+     */
+    long getLocalDay() {
+        return mLocalDayStart / DAY_MS;
+    }
+
+    /**
+     * 计算当天零点、偏移和有效区间
+     */
+    private void computeDay(long millis) {
+        mOffset = mTimeZone.getOffset(millis);
+        long epochDay = floorDiv(millis + mOffset, DAY_MS);
+        mLocalDayStart = epochDay * DAY_MS;
+
+        // 有效区间止于下一个本地零点或下一次偏移变化
+        long dayStartUtc = mLocalDayStart - mOffset;
+        long nextDayUtc = dayStartUtc + DAY_MS;
+        mValidFrom = Math.max(dayStartUtc, millis - DAY_MS);
+        mValidUntil = nextDayUtc;
+        if (mTimeZone.getOffset(nextDayUtc - 1) != mOffset) {
+            mValidUntil = findTransition(millis, nextDayUtc - 1);
+        }
+        if (mTimeZone.getOffset(mValidFrom) != mOffset) {
+            mValidFrom = findTransition(mValidFrom, millis);
+        }
+
+        computeDate(epochDay);
+    }
+
+    /**
+     * 二分查找偏移变化的时刻
+     *
+     * @param from 偏移为 from 时刻的值
+     * @param to   偏移与 from 不同
+     * @return 偏移与 to 相同的最早时刻
+     */
+    private long findTransition(long from, long to) {
+        int fromOffset = mTimeZone.getOffset(from);
+        while (to - from > 1) {
+            long mid = from + (to - from) / 2;
+            if (mTimeZone.getOffset(mid) == fromOffset) {
+                from = mid;
+            } else {
+                to = mid;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * 由日期编号计算年月日和星期（公历）
+     */
+    private void computeDate(long epochDay) {
+        // 1970-01-01 为周四
+        mDayOfWeek = (int) floorMod(epochDay + 4, 7) + Calendar.SUNDAY;
+
+        // 以 0000-03-01 为起点，每 400 年为一个周期
+        long days = epochDay + 719468;
+        long era = floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        mDayOfMonth = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        mMonth = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        mYear = (int) (yearOfEra + era * 400 + (mMonth <= 2 ? 1 : 0));
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            q--;
+        }
+        return q;
+    }
+
+    private static long floorMod(long x, long y) {
+        return x - floorDiv(x, y) * y;
+    }
+}
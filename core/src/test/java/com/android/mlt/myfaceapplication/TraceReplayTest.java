@@ -0,0 +1,143 @@
+package com.android.mlt.myfaceapplication;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 解析、统计和对比绘制命令轨迹。
+ * <p>
+ * traces/analog-interactive.trace 为交互模式指针表盘的 4 帧：首帧重绘静态表盘和分钟图层，
+ * 之后每帧只贴两个图层和秒针位图。
+ */
+public class TraceReplayTest {
+
+    private static final String FIXTURE = "/traces/analog-interactive.trace";
+    private static final long FIXTURE_TIME_MS = 1577873430000L;
+
+    @Test
+    public void fixtureCountsPerFrame() throws Exception {
+        List<TraceReplay.FrameCounts> frames = readFixture();
+
+        assertEquals(4, frames.size());
+        TraceReplay.FrameCounts first = frames.get(0);
+        assertEquals(FIXTURE_TIME_MS, first.wallMs);
+        assertEquals(11, first.total());
+        assertEquals(3, first.ops[RenderTrace.OP_TARGET]);
+        assertEquals(3, first.ops[RenderTrace.OP_TEXT]);
+        assertEquals(2, first.ops[RenderTrace.OP_LINES]);
+        assertEquals(3, first.ops[RenderTrace.OP_BITMAP_MATRIX]);
+        for (int i = 1; i < frames.size(); i++) {
+            TraceReplay.FrameCounts frame = frames.get(i);
+            assertEquals(FIXTURE_TIME_MS + i * 1000, frame.wallMs);
+            assertEquals(3, frame.total());
+            assertEquals(2, frame.ops[RenderTrace.OP_BITMAP]);
+            assertEquals(1, frame.ops[RenderTrace.OP_BITMAP_MATRIX]);
+            // 稳定帧不应出现文字测量和画布变换
+            assertEquals(0, frame.ops[RenderTrace.OP_MEASURE] + frame.ops[RenderTrace.OP_BOUNDS]);
+            assertEquals(0, frame.ops[RenderTrace.OP_SAVE] + frame.ops[RenderTrace.OP_ROTATE]);
+        }
+    }
+
+    @Test
+    public void sameTraceDoesNotRegress() throws Exception {
+        List<TraceReplay.FrameCounts> base = readFixture();
+        assertFalse(TraceReplay.diff(base, readFixture(), quiet()));
+    }
+
+    @Test
+    public void extraRotatesRegress() throws Exception {
+        // 秒针改回旋转画布绘制
+        RenderTraceWriter writer = new RenderTraceWriter(4096);
+        for (int i = 0; i < 4; i++) {
+            writer.writeFrame(FIXTURE_TIME_MS + i * 1000);
+            writer.writeTarget(RenderTrace.TARGET_SCREEN);
+            writer.writeBitmap(454, 454, 0, 0, RenderTrace.PAINT_NONE);
+            writer.writeBitmap(454, 454, 0, 0, RenderTrace.PAINT_NONE);
+            writer.writeSave();
+            writer.writeRotate(i * 6, 227, 227);
+            writer.writeLine(227, 219, 227, 32, (byte) 4);
+            writer.writeRestore();
+        }
+        List<TraceReplay.FrameCounts> current = TraceReplay.parse(
+                ByteBuffer.wrap(writer.toByteArray()));
+
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        assertTrue(TraceReplay.diff(readFixture(), current, new PrintStream(report, true)));
+        assertTrue(report.toString().contains("rotate"));
+    }
+
+    @Test
+    public void everyOpRoundTrips() throws Exception {
+        RenderTraceWriter writer = new RenderTraceWriter(4096);
+        writer.writeFrame(FIXTURE_TIME_MS);
+        writer.writeTarget(RenderTrace.TARGET_MINUTE);
+        writer.writeSave();
+        writer.writeRestore();
+        writer.writeRotate(90, 1, 2);
+        writer.writeColor(0xFF000000);
+        writer.writeLine(0, 0, 1, 1, (byte) 0);
+        writer.writeCircle(1, 1, 1, (byte) 0);
+        writer.writeArc(-90, 180, false, (byte) 6);
+        writer.writeText(5, 1, 2, (byte) 1);
+        writer.writeBitmap(10, 10, 0, 0, RenderTrace.PAINT_NONE);
+        writer.writeMeasure(5, (byte) 1);
+        writer.writeBounds(5, (byte) 1);
+        writer.writeTranslate(1, 2);
+        writer.writeRect(0, 0, 1, 1, (byte) 0);
+        writer.writeBitmapMatrix(10, 20, 1, 0, 5, 0, 1, 5, RenderTrace.PAINT_UNKNOWN);
+        writer.writeBitmapRect(10, 10, 0, 0, 5, 5, 0, 0, 10, 10, (byte) 0);
+        writer.writeLines(60, (byte) 5);
+        writer.writeClipRect(0, 0, 5, 10);
+
+        List<TraceReplay.FrameCounts> frames = TraceReplay.parse(
+                ByteBuffer.wrap(writer.toByteArray()));
+        assertEquals(1, frames.size());
+        int[] expected = new int[RenderTrace.OP_COUNT];
+        for (int op = RenderTrace.OP_TARGET; op < RenderTrace.OP_COUNT; op++) {
+            expected[op] = 1;
+        }
+        assertArrayEquals(expected, frames.get(0).ops);
+    }
+
+    @Test
+    public void overflowKeepsTraceReadable() throws Exception {
+        RenderTraceWriter writer = new RenderTraceWriter(200);
+        int frames = 0;
+        while (!writer.isOverflow()) {
+            writer.writeFrame(FIXTURE_TIME_MS + frames++);
+            writer.writeBitmap(454, 454, 0, 0, RenderTrace.PAINT_NONE);
+        }
+        int size = writer.size();
+        writer.writeSave();
+        assertEquals(size, writer.size());
+
+        List<TraceReplay.FrameCounts> parsed = TraceReplay.parse(
+                ByteBuffer.wrap(writer.toByteArray()));
+        assertTrue(parsed.size() > 0 && parsed.size() <= frames);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws Exception {
+        TraceReplay.parse(ByteBuffer.wrap(new byte[]{'W', 'F', 'T', 'L', 0, 1}));
+    }
+
+    private List<TraceReplay.FrameCounts> readFixture() throws IOException, URISyntaxException {
+        return TraceReplay.read(new File(getClass().getResource(FIXTURE).toURI()));
+    }
+
+    private static PrintStream quiet() {
+        return new PrintStream(new ByteArrayOutputStream());
+    }
+}
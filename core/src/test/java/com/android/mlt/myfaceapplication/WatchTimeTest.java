@@ -0,0 +1,177 @@
+package com.android.mlt.myfaceapplication;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 与 {@link Calendar} 逐字段比较 {@link WatchTime}：夏令时切换、闰日、时区变化和随机时刻
+ */
+public class WatchTimeTest {
+
+    private static final long MINUTE_MS = 60 * 1000L;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    private static final long DAY_MS = 24 * HOUR_MS;
+
+    private static final String[] ZONES = {
+            "UTC", "America/New_York", "Europe/London", "Europe/Berlin", "Australia/Sydney",
+            "Australia/Lord_Howe", "Asia/Kolkata", "America/St_Johns", "Pacific/Chatham",
+            "Asia/Shanghai", "Pacific/Apia"
+    };
+
+    @Test
+    public void springForward() {
+        // 2021-03-14 02:00 纽约时钟拨快到 03:00
+        sweep("America/New_York", utc(2021, Calendar.MARCH, 14, 7, 0), 3 * HOUR_MS, MINUTE_MS);
+        // 2021-03-28 01:00 UTC 伦敦、柏林拨快
+        sweep("Europe/London", utc(2021, Calendar.MARCH, 28, 1, 0), 3 * HOUR_MS, MINUTE_MS);
+        sweep("Europe/Berlin", utc(2021, Calendar.MARCH, 28, 1, 0), 3 * HOUR_MS, MINUTE_MS);
+        // 南半球 10 月拨快，豪勋爵岛只拨快半小时
+        sweep("Australia/Sydney", utc(2021, Calendar.OCTOBER, 2, 16, 0), 3 * HOUR_MS, MINUTE_MS);
+        sweep("Australia/Lord_Howe", utc(2021, Calendar.OCTOBER, 2, 15, 30), 3 * HOUR_MS,
+                MINUTE_MS);
+    }
+
+    @Test
+    public void fallBack() {
+        // 2021-11-07 02:00 纽约时钟拨回 01:00，01 点出现两次
+        sweep("America/New_York", utc(2021, Calendar.NOVEMBER, 7, 6, 0), 3 * HOUR_MS, MINUTE_MS);
+        sweep("Europe/London", utc(2021, Calendar.OCTOBER, 31, 1, 0), 3 * HOUR_MS, MINUTE_MS);
+        sweep("Australia/Sydney", utc(2021, Calendar.APRIL, 3, 16, 0), 3 * HOUR_MS, MINUTE_MS);
+        sweep("Australia/Lord_Howe", utc(2021, Calendar.APRIL, 3, 15, 0), 3 * HOUR_MS,
+                MINUTE_MS);
+    }
+
+    @Test
+    public void dateLineSkip() {
+        // 萨摩亚跳过 2011-12-30 整天
+        sweep("Pacific/Apia", utc(2011, Calendar.DECEMBER, 29, 0, 0), 2 * DAY_MS, 7 * MINUTE_MS);
+    }
+
+    @Test
+    public void leapDays() {
+        long[] days = {
+                // 普通闰年、400 年闰年、100 年不闰、2100 年不闰
+                utc(2020, Calendar.FEBRUARY, 28, 0, 0), utc(2000, Calendar.FEBRUARY, 28, 0, 0),
+                utc(1900, Calendar.FEBRUARY, 28, 0, 0), utc(2100, Calendar.FEBRUARY, 28, 0, 0),
+                // 闰年年末
+                utc(2024, Calendar.DECEMBER, 30, 0, 0)
+        };
+        for (String zone : ZONES) {
+            for (long day : days) {
+                sweep(zone, day - DAY_MS, 4 * DAY_MS, 13 * MINUTE_MS);
+            }
+        }
+    }
+
+    @Test
+    public void timeZoneChange() {
+        long now = utc(2021, Calendar.JUNE, 30, 22, 45);
+        WatchTime time = new WatchTime(TimeZone.getTimeZone("UTC"));
+        time.setTimeInMillis(now);
+        assertMatches(time, now, TimeZone.getTimeZone("UTC"));
+
+        // 切换后同一时刻可能已是另一天
+        for (String zone : ZONES) {
+            TimeZone timeZone = TimeZone.getTimeZone(zone);
+            time.setTimeZone(timeZone);
+            for (long t = now; t < now + 3 * HOUR_MS; t += 11 * MINUTE_MS) {
+                time.setTimeInMillis(t);
+                assertMatches(time, t, timeZone);
+            }
+        }
+    }
+
+    @Test
+    public void clockSetBackwards() {
+        TimeZone timeZone = TimeZone.getTimeZone("Europe/Berlin");
+        WatchTime time = new WatchTime(timeZone);
+        long now = utc(2021, Calendar.MAY, 5, 12, 0);
+        time.setTimeInMillis(now);
+        // 系统时间改回前一年的冬季，不经过 invalidate 也要得到正确结果
+        long earlier = utc(2020, Calendar.JANUARY, 15, 23, 30);
+        time.setTimeInMillis(earlier);
+        assertMatches(time, earlier, timeZone);
+
+        time.invalidate();
+        time.setTimeInMillis(now);
+        assertMatches(time, now, timeZone);
+    }
+
+    @Test
+    public void randomInstants() {
+        Random random = new Random(42);
+        long from = utc(1970, Calendar.JANUARY, 1, 0, 0);
+        long to = utc(2100, Calendar.DECEMBER, 31, 0, 0);
+        for (String zone : ZONES) {
+            TimeZone timeZone = TimeZone.getTimeZone(zone);
+            WatchTime time = new WatchTime(timeZone);
+            for (int i = 0; i < 2000; i++) {
+                long t = from + (long) (random.nextDouble() * (to - from));
+                time.setTimeInMillis(t);
+                assertMatches(time, t, timeZone);
+                // 紧接着的几帧走缓存
+                for (int frame = 1; frame <= 3; frame++) {
+                    long next = t + frame * 333L;
+                    time.setTimeInMillis(next);
+                    assertMatches(time, next, timeZone);
+                }
+            }
+        }
+    }
+
+    /**
+     * 用同一个实例按步长扫过一段时间，覆盖缓存区间的边界
+     */
+    private static void sweep(String zone, long from, long duration, long step) {
+        TimeZone timeZone = TimeZone.getTimeZone(zone);
+        WatchTime time = new WatchTime(timeZone);
+        for (long t = from; t < from + duration; t += step) {
+            // 每步前后各取一个临近的毫秒，覆盖切换时刻两侧
+            for (long probe : new long[]{t - 1, t, t + 1}) {
+                time.setTimeInMillis(probe);
+                assertMatches(time, probe, timeZone);
+            }
+        }
+    }
+
+    private static void assertMatches(WatchTime time, long millis, TimeZone timeZone) {
+        Calendar calendar = new GregorianCalendar(timeZone);
+        calendar.setTimeInMillis(millis);
+        String at = timeZone.getID() + " @" + millis;
+        assertEquals(at, millis, time.getTimeInMillis());
+        assertEquals(at + " year", calendar.get(Calendar.YEAR), time.getYear());
+        assertEquals(at + " month", calendar.get(Calendar.MONTH) + 1, time.getMonth());
+        assertEquals(at + " day", calendar.get(Calendar.DAY_OF_MONTH), time.getDayOfMonth());
+        assertEquals(at + " weekday", calendar.get(Calendar.DAY_OF_WEEK), time.getDayOfWeek());
+        assertEquals(at + " hourOfDay", calendar.get(Calendar.HOUR_OF_DAY), time.getHourOfDay());
+        assertEquals(at + " hour", calendar.get(Calendar.HOUR), time.getHour());
+        assertEquals(at + " minute", calendar.get(Calendar.MINUTE), time.getMinute());
+        assertEquals(at + " second", calendar.get(Calendar.SECOND), time.getSecond());
+        assertEquals(at + " millis", calendar.get(Calendar.MILLISECOND), time.getMillis());
+        assertEquals(at + " localDay", localDay(calendar), time.getLocalDay());
+    }
+
+    /**
+     * @return Calendar 本地日期对应的日期编号
+     */
+    private static long localDay(Calendar local) {
+        Calendar utc = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        utc.clear();
+        utc.set(local.get(Calendar.YEAR), local.get(Calendar.MONTH),
+                local.get(Calendar.DAY_OF_MONTH));
+        return utc.getTimeInMillis() / DAY_MS;
+    }
+
+    private static long utc(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+}